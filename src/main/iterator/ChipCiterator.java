@@ -1,8 +1,8 @@
 package main.iterator;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -10,6 +10,7 @@ import java.util.Map;
 import main.puzzle.BoardTemplate;
 import main.puzzle.Chip;
 import main.puzzle.Shape;
+import main.puzzle.Stat;
 
 /**
  *
@@ -17,65 +18,269 @@ import main.puzzle.Shape;
  */
 public class ChipCiterator implements Iterator<List<Chip>> {
 
+    public interface Bound {
+
+        // Whether a combination with at most this stat sum can still be kept
+        boolean test(int dmg, int brk, int hit, int rld);
+    }
+
+    // Shapes in the order of Shape.compare
+    private static final Shape[] SHAPES = Arrays.stream(Shape.values())
+            .filter((s) -> s != Shape.NONE)
+            .sorted(Shape::compare)
+            .toArray(Shape[]::new);
+
     private final Map<Shape, List<Chip>> candidateMap;
-    private final List<Shape> shapes;
-    private final List<int[]> combs;
+    private final Map<Shape, int[]> candidateIndexMap;
+    private final Map<Shape, int[][]> ptMap, statMap;
+
+    // Per level (shape of the template): the combination of candidate indexes, rewritten in place
+    private int nLevel;
+    private Shape[] shapes = new Shape[0];
+    private int[][] combs = new int[0][];
+    private int[] candidateSizes = new int[0];
+    private int[][] shapeIndexes = new int[0][];
+    private int[][][] levelPts = new int[0][][], levelStats = new int[0][][];
+    private int[] offsets = new int[0];
+    private boolean done;
+
+    // Current combination: indexes in the candidate collection, and the sums from each level up
+    private int[] current = new int[0];
+    private int size;
+    private int[][] ptSums = new int[1][4], statSums = new int[1][4];
+
+    // Bounded enumeration
+    private int[] ptLimit;
+    private Bound bound;
+    private int[][] statRemains;
 
     public ChipCiterator(Collection<Chip> candidates) {
         candidateMap = new HashMap<>();
+        Map<Shape, List<Integer>> indexMap = new HashMap<>();
+        int index = 0;
         for (Chip c : candidates) {
             Shape shape = c.getShape();
             if (!candidateMap.containsKey(shape)) {
                 candidateMap.put(shape, new ArrayList<>());
+                indexMap.put(shape, new ArrayList<>());
             }
             candidateMap.get(shape).add(c);
+            indexMap.get(shape).add(index++);
         }
-        shapes = new ArrayList<>();
-        combs = new ArrayList<>();
+
+        candidateIndexMap = new HashMap<>();
+        ptMap = new HashMap<>();
+        statMap = new HashMap<>();
+        candidateMap.forEach((shape, chips) -> {
+            int[][] pts = new int[chips.size()][];
+            int[][] stats = new int[chips.size()][];
+            for (int i = 0; i < chips.size(); i++) {
+                pts[i] = chips.get(i).getPt().toArray();
+                stats[i] = chips.get(i).getStat().toArray();
+            }
+            candidateIndexMap.put(shape, toIntArray(indexMap.get(shape)));
+            ptMap.put(shape, pts);
+            statMap.put(shape, stats);
+        });
     }
 
     @Override
     public boolean hasNext() {
-        return combs.isEmpty() || combs.get(combs.size() - 1) != null;
+        return !done;
     }
 
     @Override
     public List<Chip> next() {
         // Generate output
-        List<Chip> out = new ArrayList<>();
-        for (int i = 0; i < combs.size(); i++) {
-            int[] comb = combs.get(i);
-            List<Chip> candidates = candidateMap.get(shapes.get(i));
-            for (int index : comb) {
+        List<Chip> out = new ArrayList<>(size);
+        for (int i = 0; i < nLevel; i++) {
+            List<Chip> candidates = candidateMap.get(shapes[i]);
+            for (int index : combs[i]) {
                 out.add(candidates.get(index));
             }
         }
-        // Generate next
-        for (int i = 0; i < combs.size(); i++) {
-            int[] comb = nextComb(i);
-            if (comb == null) {
-                combs.set(i, (i < combs.size() - 1) ? nCrInit(combs.get(i).length) : null);
-            } else {
-                combs.set(i, comb);
-                break;
+        skip();
+        return out;
+    }
+
+    // Indexes of the current combination in the candidate collection, in the same order as next().
+    // The array is reused and changes on skip().
+    public int[] getIndexes() {
+        return current;
+    }
+
+    // {DMG, BRK, HIT, RLD} sum of the current combination; reused like getIndexes()
+    public int[] getStatSum() {
+        return statSums[0];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Moves to the next combination without building it
+    public void skip() {
+        generateNext(0);
+    }
+
+    // Advances the given shape like an odometer digit, resetting the shapes below it.
+    // In bounded mode, subtrees that exceed the PT limit or fail the bound are skipped.
+    private void generateNext(int level) {
+        while (0 <= level) {
+            for (int i = 0; i < level; i++) {
+                nCrInit(combs[i]);
+            }
+            int top = -1;
+            for (int i = level; i < nLevel; i++) {
+                if (nCrNext(combs[i], candidateSizes[i])) {
+                    top = i;
+                    break;
+                }
+                nCrInit(combs[i]);
+            }
+            if (top < 0) {
+                done = true;
+                return;
             }
+            // Only the changed levels are summed again
+            level = update(top);
         }
-        return out;
+    }
+
+    // Updates the current indexes and the sums from the given level down, and returns the first level to skip, or -1
+    private int update(int top) {
+        for (int i = top; 0 <= i; i--) {
+            int[] comb = combs[i];
+            int[] indexes = shapeIndexes[i];
+            int[] pt = ptSums[i];
+            int[] stat = statSums[i];
+            System.arraycopy(ptSums[i + 1], 0, pt, 0, 4);
+            System.arraycopy(statSums[i + 1], 0, stat, 0, 4);
+            int[][] pts = levelPts[i];
+            int[][] stats = levelStats[i];
+            int offset = offsets[i];
+            for (int k = 0; k < comb.length; k++) {
+                int index = comb[k];
+                current[offset + k] = indexes[index];
+                int[] p = pts[index];
+                int[] t = stats[index];
+                pt[0] += p[0];
+                pt[1] += p[1];
+                pt[2] += p[2];
+                pt[3] += p[3];
+                stat[0] += t[0];
+                stat[1] += t[1];
+                stat[2] += t[2];
+                stat[3] += t[3];
+            }
+            if (ptLimit != null
+                    && (pt[0] > ptLimit[0] || pt[1] > ptLimit[1] || pt[2] > ptLimit[2] || pt[3] > ptLimit[3])) {
+                return i;
+            }
+            if (bound != null) {
+                int[] remain = statRemains[i];
+                if (!bound.test(stat[0] + remain[0], stat[1] + remain[1], stat[2] + remain[2], stat[3] + remain[3])) {
+                    return i;
+                }
+            }
+        }
+        return -1;
     }
 
     public void init(BoardTemplate bt) {
         init(bt.getShapeCountMap());
     }
 
+    public void init(BoardTemplate bt, Stat ptLimit, Bound bound) {
+        init(bt.getShapeCountMap(), ptLimit, bound);
+    }
+
     public void init(Map<Shape, Integer> shapeCountMap) {
-        shapes.clear();
-        combs.clear();
-        List<Shape> keys = new ArrayList<>(shapeCountMap.keySet());
-        Collections.sort(keys, (o1, o2) -> Shape.compare(o1, o2));
-        for (Shape shape : keys) {
-            int count = shapeCountMap.get(shape);
-            shapes.add(shape);
-            combs.add(nCrInit(count));
+        init(shapeCountMap, null, null);
+    }
+
+    public void init(Map<Shape, Integer> shapeCountMap, Stat ptLimit, Bound bound) {
+        this.ptLimit = ptLimit == null ? null : ptLimit.toArray();
+        this.bound = bound;
+
+        int n = shapeCountMap.size();
+        if (shapes.length < n) {
+            shapes = new Shape[n];
+            combs = new int[n][];
+            candidateSizes = new int[n];
+            shapeIndexes = new int[n][];
+            levelPts = new int[n][][];
+            levelStats = new int[n][][];
+            offsets = new int[n];
+            ptSums = new int[n + 1][4];
+            statSums = new int[n + 1][4];
+            statRemains = new int[n][4];
+        }
+        nLevel = 0;
+        size = 0;
+        for (Shape shape : SHAPES) {
+            Integer count = shapeCountMap.get(shape);
+            if (count == null) {
+                continue;
+            }
+            int i = nLevel++;
+            shapes[i] = shape;
+            if (combs[i] == null || combs[i].length != count) {
+                combs[i] = new int[count];
+            }
+            nCrInit(combs[i]);
+            candidateSizes[i] = getCandidateSize(shape);
+            shapeIndexes[i] = candidateIndexMap.getOrDefault(shape, new int[0]);
+            levelPts[i] = ptMap.getOrDefault(shape, new int[0][]);
+            levelStats[i] = statMap.getOrDefault(shape, new int[0][]);
+            offsets[i] = size;
+            size += count;
+        }
+        if (current.length != size) {
+            current = new int[size];
+        }
+        Arrays.fill(ptSums[nLevel], 0);
+        Arrays.fill(statSums[nLevel], 0);
+        done = false;
+
+        // Combinations that need more chips than the candidates are never valid
+        for (int i = 0; i < nLevel; i++) {
+            if (candidateSizes[i] < combs[i].length) {
+                done = true;
+                return;
+            }
+        }
+        if (isBounded() && 0 < nLevel) {
+            initBound();
+        }
+        int level = nLevel == 0 ? -1 : update(nLevel - 1);
+        if (0 <= level) {
+            generateNext(level);
+        }
+    }
+
+    private boolean isBounded() {
+        return ptLimit != null || bound != null;
+    }
+
+    private void initBound() {
+        // Largest stat the shapes below each shape can add
+        Arrays.fill(statRemains[0], 0);
+        for (int i = 1; i < nLevel; i++) {
+            int count = combs[i - 1].length;
+            int[][] stats = levelStats[i - 1];
+            for (int j = 0; j < 4; j++) {
+                int[] values = new int[stats.length];
+                for (int k = 0; k < stats.length; k++) {
+                    values[k] = stats[k][j];
+                }
+                Arrays.sort(values);
+                int max = 0;
+                for (int k = Math.max(0, values.length - count); k < values.length; k++) {
+                    max += values[k];
+                }
+                statRemains[i][j] = statRemains[i - 1][j] + max;
+            }
         }
     }
 
@@ -86,29 +291,32 @@ public class ChipCiterator implements Iterator<List<Chip>> {
         return candidateMap.get(shape).size();
     }
 
-    public boolean hasEnoughChips(BoardTemplate template) {
-        Map<Shape, Integer> nameCountMap = template.getShapeCountMap();
-        for (Shape shape : nameCountMap.keySet()) {
-            if (nameCountMap.get(shape) > getCandidateSize(shape)) {
-                return false;
-            }
-        }
-        return true;
+    // Shape ordinal -> number of candidates
+    public int[] getCandidateCounts() {
+        int[] out = new int[Shape.values().length];
+        candidateMap.forEach((shape, chips) -> out[shape.ordinal()] = chips.size());
+        return out;
     }
 
-    private int[] nextComb(int i) {
-        return nCrNext(combs.get(i), getCandidateSize(shapes.get(i)));
+    private static int[] toIntArray(List<Integer> list) {
+        if (list == null) {
+            return new int[0];
+        }
+        int[] out = new int[list.size()];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = list.get(i);
+        }
+        return out;
     }
 
-    private static int[] nCrInit(int n) {
-        int[] out = new int[n];
-        for (int i = 0; i < n; i++) {
-            out[i] = i;
+    private static void nCrInit(int[] l) {
+        for (int i = 0; i < l.length; i++) {
+            l[i] = i;
         }
-        return out;
     }
 
-    private static int[] nCrNext(int[] l, int max) {
+    // Next combination of l.length out of max in place; false if l was the last one
+    private static boolean nCrNext(int[] l, int max) {
         int currentMax = max - 1;
         int index = l.length - 1;
         while (-1 < index) {
@@ -117,14 +325,12 @@ public class ChipCiterator implements Iterator<List<Chip>> {
                 currentMax--;
                 index--;
             } else {
-                int[] out = new int[l.length];
-                System.arraycopy(l, 0, out, 0, index);
                 for (int i = index; i < l.length; i++) {
-                    out[i] = nextNum + i - index;
+                    l[i] = nextNum + i - index;
                 }
-                return out;
+                return true;
             }
         }
-        return null;
+        return false;
     }
 }
@@ -19,95 +19,146 @@ import main.puzzle.Shape;
  */
 class PerTypeShapeCiterator implements Iterator<List<Shape>> {
 
-    private List<List<Shape>> next;
+    // Position -> index in the shapes of its type; positions of a type are contiguous and non-decreasing
+    private final int[] comb;
+    private final Shape[][] posShapes;
+    private final int[] typeEnds;
+    private final int[] typeLengths;
+    // Shape ordinal -> count in comb
+    private final int[] shapeCounts = new int[Shape.values().length];
+    private boolean hasNext;
     private final int total;
 
     public PerTypeShapeCiterator(Map<Shape.Type, Integer> typeCountMap) {
-        next = initComb(typeCountMap);
-        total = total(typeCountMap);
+        this(initComb(typeCountMap), total(typeCountMap));
     }
 
     public PerTypeShapeCiterator(List<Shape> progress) {
-        next = toComb(progress);
-        total = total(getTypeCount(progress));
+        this(toComb(progress), total(getTypeCount(progress)));
+    }
+
+    private PerTypeShapeCiterator(List<List<Shape>> init, int total) {
+        int length = 0;
+        for (List<Shape> shapes : init) {
+            length += shapes.size();
+        }
+        this.comb = new int[length];
+        this.posShapes = new Shape[length][];
+        this.typeEnds = new int[init.size()];
+        this.typeLengths = new int[init.size()];
+        int p = 0;
+        for (int t = 0; t < init.size(); t++) {
+            List<Shape> shapes = init.get(t);
+            Shape[] typeShapes = Shape.getShapes(shapes.get(0).getType());
+            for (Shape shape : shapes) {
+                posShapes[p] = typeShapes;
+                comb[p] = Arrays.asList(typeShapes).indexOf(shape);
+                shapeCounts[shape.ordinal()]++;
+                p++;
+            }
+            typeEnds[t] = p;
+            typeLengths[t] = shapes.size();
+        }
+        this.hasNext = !init.isEmpty();
+        this.total = total;
     }
 
     @Override
     public boolean hasNext() {
-        return !next.isEmpty();
+        return hasNext;
     }
 
     @Override
     public List<Shape> next() {
         List<Shape> out = peek();
-        next = nextComb(next);
+        skip();
         return out;
     }
 
     public List<Shape> peek() {
-        List<Shape> out = new ArrayList<>();
-        for (List<Shape> nextType : next) {
-            for (Shape shape : nextType) {
-                out.add(shape);
+        List<Shape> out = new ArrayList<>(comb.length);
+        if (hasNext) {
+            for (int p = 0; p < comb.length; p++) {
+                out.add(posShapes[p][comb[p]]);
             }
         }
         return out;
     }
 
+    // Shape ordinal -> count of the next combination; updated in place
+    public int[] getShapeCounts() {
+        return shapeCounts;
+    }
+
     public int total() {
         return total;
     }
 
-    private static List<List<Shape>> nextComb(List<List<Shape>> comb) {
-        int n = comb.size() - 1;
-        while (0 <= n) {
-            List<Shape> chips = nextComb_type(comb.get(n));
-            if (chips.isEmpty()) {
-                n--;
-            } else {
-                List<List<Shape>> out = new ArrayList<>(comb.size());
-                for (int i = 0; i < n; i++) {
-                    out.add(comb.get(i));
-                }
-                out.add(chips);
-                for (int i = n + 1; i < comb.size(); i++) {
-                    Shape chip = comb.get(i).get(0);
-                    int length = comb.get(i).size();
-                    out.add(initComb_type(chip.getType(), length));
+    // Same order as stepping each type in lexicographic order with the last type the fastest
+    public void skip() {
+        if (!hasNext) {
+            return;
+        }
+        for (int t = typeEnds.length - 1; 0 <= t; t--) {
+            int start = t == 0 ? 0 : typeEnds[t - 1];
+            int max = posShapes[start].length - 1;
+            for (int p = typeEnds[t] - 1; start <= p; p--) {
+                if (comb[p] < max) {
+                    int v = comb[p] + 1;
+                    for (int i = p; i < typeEnds[t]; i++) {
+                        set(i, v);
+                    }
+                    for (int i = typeEnds[t]; i < comb.length; i++) {
+                        set(i, 0);
+                    }
+                    return;
                 }
-                return out;
             }
         }
-        return new ArrayList<>();
+        hasNext = false;
     }
 
-    private static List<Shape> nextComb_type(List<Shape> chips) {
-        int n = chips.size() - 1;
-        while (0 <= n) {
-            Shape shape = nextShape(chips.get(n));
-            if (shape == Shape.NONE) {
-                n--;
-            } else {
-                List<Shape> out = new ArrayList<>(chips.size());
-                for (int i = 0; i < n; i++) {
-                    out.add(chips.get(i));
-                }
-                for (int i = n; i < chips.size(); i++) {
-                    out.add(shape);
-                }
-                return out;
-            }
+    private void set(int p, int v) {
+        shapeCounts[posShapes[p][comb[p]].ordinal()]--;
+        comb[p] = v;
+        shapeCounts[posShapes[p][v].ordinal()]++;
+    }
+
+    // Jumps to the index-th combination from the start
+    public void seek(int index) {
+        if (index < 0 || total <= index || typeEnds.length == 0) {
+            hasNext = false;
+            return;
+        }
+        // The last type changes the fastest
+        int[] ranks = new int[typeEnds.length];
+        for (int t = typeEnds.length - 1; 0 <= t; t--) {
+            int nType = nHr(posShapes[typeEnds[t] - 1].length, typeLengths[t]);
+            ranks[t] = index % nType;
+            index /= nType;
+        }
+        for (int t = 0; t < typeEnds.length; t++) {
+            unrank_type(t, ranks[t]);
         }
-        return new ArrayList<>();
+        hasNext = true;
     }
 
-    private static Shape nextShape(Shape shape) {
-        List<Shape> chips = Arrays.asList(Shape.getShapes(shape.getType()));
-        int i = chips.indexOf(shape) + 1;
-        if (chips.size() <= i) {
-            return Shape.NONE;
+    // Non-decreasing shape sequences in lexicographic order
+    private void unrank_type(int t, int rank) {
+        int start = t == 0 ? 0 : typeEnds[t - 1];
+        int n = posShapes[start].length;
+        int length = typeLengths[t];
+        int v = 0;
+        for (int i = 0; i < length; i++) {
+            // Sequences with this position at v and the rest from v
+            int count = nHr(n - v, length - i - 1);
+            while (count <= rank) {
+                rank -= count;
+                v++;
+                count = nHr(n - v, length - i - 1);
+            }
+            set(start + i, v);
         }
-        return chips.get(i);
     }
 
     private static List<List<Shape>> initComb(Map<Shape.Type, Integer> combType) {
@@ -16,10 +16,12 @@ import main.puzzle.Shape;
  */
 public class ShapeCiterator implements Iterator<List<Shape>> {
 
-    private final Map<Shape, Integer> chipNameCountMap;
+    // Shape ordinal -> number of chips
+    private final int[] chipShapeCounts = new int[Shape.values().length];
     private final List<PerTypeShapeCiterator> cits = new ArrayList<>();
     private final boolean limited;
     private int iteratorIndex = 0;
+    private int position = 0;
 
     public ShapeCiterator(String name, int star, List<Chip> chips) {
         List<Shape.Type> chipTypes = new ArrayList<>();
@@ -29,7 +31,9 @@ public class ShapeCiterator implements Iterator<List<Shape>> {
             chipShapes.add(c.getShape());
         }
         Map<Shape.Type, Integer> typeCandidateCountMap = getTypeCount(chipTypes);
-        chipNameCountMap = getShapeCount(chipShapes);
+        for (Shape shape : chipShapes) {
+            chipShapeCounts[shape.ordinal()]++;
+        }
 
         List<Map<Shape.Type, Integer>> typeCountMaps = new ArrayList<>();
         Set<Shape.Type> types = typeCandidateCountMap.keySet();
@@ -47,8 +51,6 @@ public class ShapeCiterator implements Iterator<List<Shape>> {
     }
 
     public ShapeCiterator(String name, int star, Set<Shape.Type> types) {
-        chipNameCountMap = new HashMap<>();
-
         List<Map<Shape.Type, Integer>> typeCountMaps = PerTypeShapeCiterator.getTypeCountMaps(name, star, types);
         for (Map<Shape.Type, Integer> map : typeCountMaps) {
             cits.add(new PerTypeShapeCiterator(map));
@@ -71,12 +73,35 @@ public class ShapeCiterator implements Iterator<List<Shape>> {
     }
 
     public void skip() {
-        next();
+        if (cits.isEmpty()) {
+            return;
+        }
+        if (!getCiterator().hasNext() && hasNext()) {
+            iteratorIndex++;
+        }
+        if (getCiterator().hasNext()) {
+            getCiterator().skip();
+            position++;
+        }
     }
 
     public void skip(int progress) {
-        for (int i = 0; i < progress; i++) {
-            skip();
+        seek(position + progress);
+    }
+
+    // Jumps to the index-th multiset from the start without iterating
+    public void seek(int index) {
+        position = index;
+        iteratorIndex = 0;
+        while (iteratorIndex < cits.size() - 1 && getCiterator().total() <= index) {
+            index -= getCiterator().total();
+            iteratorIndex++;
+        }
+        if (!cits.isEmpty()) {
+            getCiterator().seek(index);
+        }
+        for (int i = iteratorIndex + 1; i < cits.size(); i++) {
+            cits.get(i).seek(0);
         }
     }
 
@@ -96,10 +121,12 @@ public class ShapeCiterator implements Iterator<List<Shape>> {
         if (cits.isEmpty()) {
             return new ArrayList<>();
         }
-        List<Shape> next = getCiterator().next();
-        if (next.isEmpty() && hasNext()) {
+        if (!getCiterator().hasNext() && hasNext()) {
             iteratorIndex++;
-            next = getCiterator().next();
+        }
+        List<Shape> next = getCiterator().next();
+        if (!next.isEmpty()) {
+            position++;
         }
         return next;
     }
@@ -112,12 +139,20 @@ public class ShapeCiterator implements Iterator<List<Shape>> {
             return true;
         }
 
-        List<Shape> next = getCiterator().peek();
-        if (next.isEmpty() && hasNext()) {
-            next = cits.get(iteratorIndex + 1).peek();
+        PerTypeShapeCiterator cit = getCiterator();
+        if (!cit.hasNext()) {
+            if (!hasNext()) {
+                return true;
+            }
+            cit = cits.get(iteratorIndex + 1);
         }
-        Map<Shape, Integer> nameCount = getShapeCount(next);
-        return allShapeEnough(nameCount, chipNameCountMap);
+        int[] counts = cit.getShapeCounts();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > chipShapeCounts[i]) {
+                return false;
+            }
+        }
+        return true;
     }
 
     private static Map<Shape.Type, Integer> getTypeCount(Collection<Shape.Type> types) {
@@ -133,19 +168,6 @@ public class ShapeCiterator implements Iterator<List<Shape>> {
         return out;
     }
 
-    private static Map<Shape, Integer> getShapeCount(Collection<Shape> shapes) {
-        Map<Shape, Integer> out = new HashMap<>();
-        for (Shape s : shapes) {
-            if (!out.containsKey(s)) {
-                out.put(s, 0);
-            }
-            int nc = out.get(s);
-            nc++;
-            out.put(s, nc);
-        }
-        return out;
-    }
-
     private static boolean allTypeEnough(Map<Shape.Type, Integer> required, Map<Shape.Type, Integer> candidates) {
         for (Shape.Type type : required.keySet()) {
             if (!candidates.containsKey(type) || required.get(type) > candidates.get(type)) {
@@ -154,13 +176,4 @@ public class ShapeCiterator implements Iterator<List<Shape>> {
         }
         return true;
     }
-
-    private static boolean allShapeEnough(Map<Shape, Integer> required, Map<Shape, Integer> candidates) {
-        for (Shape type : required.keySet()) {
-            if (!candidates.containsKey(type) || required.get(type) > candidates.get(type)) {
-                return false;
-            }
-        }
-        return true;
-    }
 }
@@ -434,6 +434,8 @@ public class Board implements Comparable<Board>, Serializable {
     private final String name;
     private final int star;
     private List<Chip> chips;
+    // Built when a chip is first looked up by ID
+    private volatile ChipIndex chipIndex;
     private PuzzleMatrix<Integer> matrix;
     private final Stat maxStat;
 
@@ -492,11 +494,7 @@ public class Board implements Comparable<Board>, Serializable {
 
         this.statPerc = getStatPerc(this.stat, this.maxStat);
 
-        int xp_ = 0;
-        for (Chip chip : chips) {
-            xp_ += chip.getCumulXP();
-        }
-        xp = xp_;
+        this.xp = getXP(chips);
     }
 
     // Board Template
@@ -504,15 +502,7 @@ public class Board implements Comparable<Board>, Serializable {
         this.name = name;
         this.star = star;
 
-        int rotation = 0;
-        int min = candidates.size();
-        for (int r = 0; r < 4; r += MAP_ROTATIONSTEP.get(name, star)) {
-            int count = template.getNumRotationNeeded(r, candidates);
-            if (count < min) {
-                min = count;
-                rotation = r;
-            }
-        }
+        int rotation = getTemplateRotation(name, star, candidates, template);
 
         BoardTemplate newTemplate = template.getRotatedTemplate(rotation);
 
@@ -567,11 +557,7 @@ public class Board implements Comparable<Board>, Serializable {
 
         this.statPerc = getStatPerc(this.stat, this.maxStat);
 
-        int xp_ = 0;
-        for (Chip chip : chips) {
-            xp_ += chip.getCumulXP();
-        }
-        xp = xp_;
+        this.xp = getXP(chips);
     }
 
     // <editor-fold defaultstate="collapsed" desc="Name">
@@ -638,6 +624,32 @@ public class Board implements Comparable<Board>, Serializable {
         }
         return sum;
     }
+
+    public static int getNumRotationNeeded(String name, int star, List<Chip> candidates, BoardTemplate template) {
+        return getNumRotationNeeded(name, star, BoardTemplate.getRotationCounts(candidates), candidates.size(), template);
+    }
+
+    public static int getNumRotationNeeded(String name, int star, int[] rotationCounts, int nChip, BoardTemplate template) {
+        return template.getNumRotationNeeded(getTemplateRotation(name, star, rotationCounts, nChip, template), rotationCounts);
+    }
+
+    private static int getTemplateRotation(String name, int star, List<Chip> candidates, BoardTemplate template) {
+        return getTemplateRotation(name, star, BoardTemplate.getRotationCounts(candidates), candidates.size(), template);
+    }
+
+    private static int getTemplateRotation(String name, int star, int[] rotationCounts, int nChip, BoardTemplate template) {
+        int rotation = 0;
+        int min = nChip;
+        int step = MAP_ROTATIONSTEP.get(name, star);
+        for (int r = 0; r < 4; r += step) {
+            int count = template.getNumRotationNeeded(r, rotationCounts);
+            if (count < min) {
+                min = count;
+                rotation = r;
+            }
+        }
+        return rotation;
+    }
 //    public void minimizeTicket() {
 //        for (int rotation = 0; rotation < 4; rotation += MAP_ROTATIONSTEP.get(name, star)) {
 //            // Start a new board
@@ -778,21 +790,21 @@ public class Board implements Comparable<Board>, Serializable {
         return getStatPerc(type, s, m);
     }
 
-    private static double getStatPerc(Stat stat, Stat max) {
+    public static double getStatPerc(Stat stat, Stat max) {
         if (max.allZero()) {
             return 1.0;
         }
         if (stat.allGeq(max)) {
             return 1.0;
         }
-        int[] sArray = stat.limit(max).toArray();
-        int[] mArray = max.toArray();
-        double s = 0;
-        double m = 0;
-        for (int i = 0; i < 4; i++) {
-            s += new Rational(sArray[i]).div(Chip.RATES[i]).getDouble();
-            m += new Rational(mArray[i]).div(Chip.RATES[i]).getDouble();
-        }
+        double s = Chip.getRatedStat(Stat.DMG, Math.min(stat.dmg, max.dmg))
+                + Chip.getRatedStat(Stat.BRK, Math.min(stat.brk, max.brk))
+                + Chip.getRatedStat(Stat.HIT, Math.min(stat.hit, max.hit))
+                + Chip.getRatedStat(Stat.RLD, Math.min(stat.rld, max.rld));
+        double m = Chip.getRatedStat(Stat.DMG, max.dmg)
+                + Chip.getRatedStat(Stat.BRK, max.brk)
+                + Chip.getRatedStat(Stat.HIT, max.hit)
+                + Chip.getRatedStat(Stat.RLD, max.rld);
         if (m == 0) {
             return 1.0;
         }
@@ -885,10 +897,22 @@ public class Board implements Comparable<Board>, Serializable {
     public int getXP() {
         return xp;
     }
+
+    public static int getXP(List<Chip> chips) {
+        int xp = 0;
+        for (Chip chip : chips) {
+            xp += chip.getCumulXP();
+        }
+        return xp;
+    }
     // </editor-fold>
 
     // <editor-fold defaultstate="collapsed" desc="Mark">
     public int getMarkedCellCount() {
+        return getMarkedCellCount(chips);
+    }
+
+    public static int getMarkedCellCount(List<Chip> chips) {
         int sum = 0;
         for (Chip c : chips) {
             if (c.isMarked()) {
@@ -899,6 +923,10 @@ public class Board implements Comparable<Board>, Serializable {
     }
 
     public int getMarkedChipCount() {
+        return getMarkedChipCount(chips);
+    }
+
+    public static int getMarkedChipCount(List<Chip> chips) {
         int count = 0;
         for (Chip c : chips) {
             if (c.isMarked()) {
@@ -927,12 +955,20 @@ public class Board implements Comparable<Board>, Serializable {
     }
 
     public Chip getChip(String id) {
-        for (Chip c : chips) {
-            if (c.getID().equals(id)) {
-                return c;
-            }
+        return getChipIndex().get(id);
+    }
+
+    public boolean containsChip(String id) {
+        return getChipIndex().contains(id);
+    }
+
+    private ChipIndex getChipIndex() {
+        ChipIndex index = chipIndex;
+        if (index == null) {
+            index = new ChipIndex(chips);
+            chipIndex = index;
         }
-        return null;
+        return index;
     }
 
     public List<Chip> getChips() {
@@ -964,6 +1000,44 @@ public class Board implements Comparable<Board>, Serializable {
         return matrix;
     }
 
+    // Chip cells of the placement, sorted and minimized over the rotations the board is invariant to
+    // Placements with the same canonical form are the same up to a rotation of the board
+    public static long[] getCanonicalPlacement(String name, int star, List<Puzzle> puzzles) {
+        long[] masks = new long[puzzles.size()];
+        for (int i = 0; i < masks.length; i++) {
+            Puzzle p = puzzles.get(i);
+            masks[i] = PuzzleMask.get(p.shape, p.rotation, p.location);
+        }
+        // Same as PuzzleMatrix.rotateContent(2, UNUSED), which turns inside the bound of the board
+        int[] b = PuzzleMask.getBound(PuzzleMask.get(initMatrix(name, star), EMPTY));
+
+        long[] out = null;
+        int step = MAP_ROTATIONSTEP.get(name, star);
+        for (int r = 0; r < 4; r += step) {
+            long[] rotated = new long[masks.length];
+            for (int i = 0; i < masks.length; i++) {
+                rotated[i] = r == 2
+                        ? PuzzleMask.flipCols(PuzzleMask.flipRows(masks[i], b[0], b[1]), b[2], b[3])
+                        : PuzzleMask.rotate(masks[i], r);
+            }
+            Arrays.sort(rotated);
+            if (out == null || compare(rotated, out) < 0) {
+                out = rotated;
+            }
+        }
+        return out;
+    }
+
+    private static int compare(long[] a, long[] b) {
+        for (int i = 0; i < Math.min(a.length, b.length); i++) {
+            int c = Long.compare(a[i], b[i]);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return Integer.compare(a.length, b.length);
+    }
+
     public PuzzleMatrix<Integer> getMatrix() {
         return matrix;
     }
@@ -1061,6 +1135,15 @@ public class Board implements Comparable<Board>, Serializable {
         // Placement
         PuzzleMatrix<Integer> placement = initMatrix(name, star);
         for (int i = 0; i < puzzles.size(); i++) {
+            Puzzle puzzle = puzzles.get(i);
+            long mask = PuzzleMask.get(puzzle.shape, puzzle.rotation, puzzle.location);
+            if (mask != 0) {
+                for (long m = mask; m != 0; m &= m - 1) {
+                    Point p = PuzzleMask.toPoint(Long.numberOfTrailingZeros(m));
+                    placement.set(p.x, p.y, i);
+                }
+                continue;
+            }
             PuzzleMatrix<Boolean> matrix = Chip.generateMatrix(puzzles.get(i).shape, puzzles.get(i).rotation);
             Set<Point> pts = matrix.getPoints(true);
             Point fp = matrix.getPivot(true);
@@ -4,11 +4,11 @@ import java.awt.Point;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 import main.util.IO;
-import main.util.Pair;
 
 /**
  *
@@ -22,6 +22,9 @@ public class BoardTemplate implements Comparable<BoardTemplate> {
 
     private final PuzzleMatrix<Integer> placement;
 
+    private volatile int[][][] demands;
+    private volatile BoardTemplate[] rotatedTemplates;
+
     public static final int END = 0;
     public static final int EMPTY = 1;
     public static final int NORMAL = 2;
@@ -55,7 +58,7 @@ public class BoardTemplate implements Comparable<BoardTemplate> {
         placement = Board.toPlacement(name, star, puzzles);
 
         // Symmetry
-        this.symmetry = placement.isSymmetric(Board.UNUSED);
+        this.symmetry = isSymmetric(placement, puzzles.size());
 
         init();
         state = NORMAL;
@@ -98,43 +101,82 @@ public class BoardTemplate implements Comparable<BoardTemplate> {
         state = NORMAL;
     }
 
-    public int getNumRotationNeeded(int rotation, List<Chip> chips) {
-        Map<Pair<Shape, Integer>, Integer> shape_rotation_count = new HashMap<>();
-        for (int i = 0; i < puzzles.size(); i++) {
-            Puzzle puzzle = puzzles.get(i);
-            Shape s = puzzle.shape;
-            int r = (puzzle.rotation + rotation) % s.getMaxRotation();
-            Pair<Shape, Integer> key = new Pair<>(s, r);
-            if (shape_rotation_count.containsKey(key)) {
-                shape_rotation_count.put(key, shape_rotation_count.get(key) + 1);
-            } else {
-                shape_rotation_count.put(key, 1);
-            }
-        }
-
+    // (shape ordinal, rotation) -> number of chips
+    public static int[] getRotationCounts(List<Chip> chips) {
+        int[] out = new int[getRotationKeyCount()];
         for (Chip chip : chips) {
-            Pair<Shape, Integer> key = new Pair<>(chip.getShape(), chip.getInitRotation());
-            if (shape_rotation_count.containsKey(key)) {
-                if (shape_rotation_count.get(key) == 1) {
-                    shape_rotation_count.remove(key);
-                } else {
-                    shape_rotation_count.put(key, shape_rotation_count.get(key) - 1);
-                }
-            }
+            out[getRotationKey(chip.getShape(), chip.getInitRotation())]++;
         }
+        return out;
+    }
+
+    public static int getRotationKey(Shape shape, int rotation) {
+        return shape.ordinal() * 4 + rotation;
+    }
+
+    public static int getRotationKeyCount() {
+        return Shape.values().length * 4;
+    }
+
+    public int getNumRotationNeeded(int rotation, List<Chip> chips) {
+        return getNumRotationNeeded(rotation, getRotationCounts(chips));
+    }
 
+    public int getNumRotationNeeded(int rotation, int[] rotationCounts) {
+        int[][] demand = getDemands()[rotation % 4];
+        int[] keys = demand[0];
+        int[] counts = demand[1];
         int count = 0;
-        for (Pair<Shape, Integer> key : shape_rotation_count.keySet()) {
-            count += shape_rotation_count.get(key);
+        for (int i = 0; i < keys.length; i++) {
+            count += Math.max(0, counts[i] - rotationCounts[keys[i]]);
         }
         return count;
     }
 
+    // Board rotation -> {(shape, rotation) keys, counts}, computed once
+    private int[][][] getDemands() {
+        int[][][] out = demands;
+        if (out == null) {
+            out = new int[4][][];
+            for (int rotation = 0; rotation < 4; rotation++) {
+                Map<Integer, Integer> countMap = new LinkedHashMap<>();
+                for (Puzzle puzzle : puzzles) {
+                    Shape s = puzzle.shape;
+                    int key = getRotationKey(s, (puzzle.rotation + rotation) % s.getMaxRotation());
+                    countMap.merge(key, 1, Integer::sum);
+                }
+                int[] keys = new int[countMap.size()];
+                int[] counts = new int[countMap.size()];
+                int i = 0;
+                for (Map.Entry<Integer, Integer> entry : countMap.entrySet()) {
+                    keys[i] = entry.getKey();
+                    counts[i++] = entry.getValue();
+                }
+                out[rotation] = new int[][]{keys, counts};
+            }
+            demands = out;
+        }
+        return out;
+    }
+
     public BoardTemplate getRotatedTemplate(int rotation) {
         rotation = rotation % 4;
         if (rotation == 0) {
             return this;
         }
+        // Shared by all boards of this template; a race only computes it twice
+        BoardTemplate[] cache = rotatedTemplates;
+        if (cache != null && cache[rotation] != null) {
+            return cache[rotation];
+        }
+        BoardTemplate template = rotate(rotation);
+        BoardTemplate[] newCache = cache == null ? new BoardTemplate[4] : cache.clone();
+        newCache[rotation] = template;
+        rotatedTemplates = newCache;
+        return template;
+    }
+
+    private BoardTemplate rotate(int rotation) {
         PuzzleMatrix<Integer> matrix = new PuzzleMatrix<>(placement);
         matrix.rotate(rotation);
 
@@ -143,7 +185,8 @@ public class BoardTemplate implements Comparable<BoardTemplate> {
             Puzzle puzzle = puzzles.get(i);
             Shape s = puzzle.shape;
             int r = (puzzle.rotation + rotation) % s.getMaxRotation();
-            Point l = matrix.getPivot(i);
+            long mask = PuzzleMask.get(s, puzzle.rotation, puzzle.location);
+            Point l = mask != 0 ? PuzzleMask.getPivot(PuzzleMask.rotate(mask, rotation)) : matrix.getPivot(i);
             newPuzzles.add(new Puzzle(s, r, l));
         }
         return new BoardTemplate(shapeCountMap, matrix, newPuzzles, symmetry);
@@ -170,7 +213,26 @@ public class BoardTemplate implements Comparable<BoardTemplate> {
     }
 
     public boolean calcSymmetry() {
-        return placement.isSymmetric(Board.UNUSED);
+        return isSymmetric(placement, puzzles.size());
+    }
+
+    // Same as placement.isSymmetric(Board.UNUSED), with a cell mask for each chip, empty, and unused
+    private static boolean isSymmetric(PuzzleMatrix<Integer> placement, int nPuzzle) {
+        if (placement.getNumRow() != PuzzleMask.SIZE || placement.getNumCol() != PuzzleMask.SIZE) {
+            return placement.isSymmetric(Board.UNUSED);
+        }
+        long[] colors = new long[nPuzzle + 2];
+        for (int row = 0; row < PuzzleMask.SIZE; row++) {
+            for (int col = 0; col < PuzzleMask.SIZE; col++) {
+                int v = placement.get(row, col);
+                int color = 0 <= v ? v : v == Board.EMPTY ? nPuzzle : nPuzzle + 1;
+                if (nPuzzle + 1 < color) {
+                    return placement.isSymmetric(Board.UNUSED);
+                }
+                colors[color] |= PuzzleMask.bit(row, col);
+            }
+        }
+        return PuzzleMask.isSymmetric(~colors[nPuzzle + 1], colors);
     }
 
     public Map<Shape, Integer> getShapeCountMap() {
@@ -0,0 +1,107 @@
+package main.puzzle;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ *
+ * @author Bunnyspa
+ */
+public class BoardTemplateIndex {
+
+    // Templates grouped by their shape counts (shape ordinal -> count)
+    private final List<BoardTemplate> templates;
+    private final int[] groups;
+    private final List<int[]> groupShapes = new ArrayList<>();
+    private final List<int[]> groupCounts = new ArrayList<>();
+    private final List<int[]> groupSizes = new ArrayList<>();
+
+    public BoardTemplateIndex(List<BoardTemplate> templates) {
+        this.templates = templates;
+        this.groups = new int[templates.size()];
+
+        Map<List<Integer>, Integer> groupMap = new HashMap<>();
+        for (int i = 0; i < templates.size(); i++) {
+            BoardTemplate template = templates.get(i);
+            int[] counts = toCounts(template.getShapeCountMap());
+            List<Integer> key = new ArrayList<>(counts.length);
+            for (int count : counts) {
+                key.add(count);
+            }
+            Integer group = groupMap.get(key);
+            if (group == null) {
+                group = groupCounts.size();
+                groupMap.put(key, group);
+                // Only the shapes in the template are kept
+                int n = 0;
+                for (int count : counts) {
+                    if (count > 0) {
+                        n++;
+                    }
+                }
+                int[] shapes = new int[n];
+                int[] shapeCounts = new int[n];
+                for (int o = 0, j = 0; o < counts.length; o++) {
+                    if (counts[o] > 0) {
+                        shapes[j] = o;
+                        shapeCounts[j++] = counts[o];
+                    }
+                }
+                groupShapes.add(shapes);
+                groupCounts.add(shapeCounts);
+                groupSizes.add(new int[2]);
+            }
+            groups[i] = group;
+            // Total, symmetric
+            groupSizes.get(group)[0]++;
+            if (template.isSymmetric()) {
+                groupSizes.get(group)[1]++;
+            }
+        }
+    }
+
+    public static int[] toCounts(Map<Shape, Integer> shapeCountMap) {
+        int[] out = new int[Shape.values().length];
+        shapeCountMap.forEach((shape, count) -> out[shape.ordinal()] = count);
+        return out;
+    }
+
+    public List<BoardTemplate> getTemplates() {
+        return templates;
+    }
+
+    public int getGroup(int templateIndex) {
+        return groups[templateIndex];
+    }
+
+    public int getGroupCount() {
+        return groupCounts.size();
+    }
+
+    // Groups whose templates can be filled with the available chips (shape ordinal -> count)
+    public boolean[] getEnoughGroups(int[] available) {
+        boolean[] out = new boolean[groupCounts.size()];
+        for (int g = 0; g < out.length; g++) {
+            int[] shapes = groupShapes.get(g);
+            int[] counts = groupCounts.get(g);
+            boolean enough = true;
+            for (int i = 0; i < shapes.length && enough; i++) {
+                enough = counts[i] <= available[shapes[i]];
+            }
+            out[g] = enough;
+        }
+        return out;
+    }
+
+    public int getTemplateCount(boolean[] enoughGroups, boolean symmetry) {
+        int count = 0;
+        for (int g = 0; g < enoughGroups.length; g++) {
+            if (enoughGroups[g]) {
+                count += groupSizes.get(g)[symmetry ? 1 : 0];
+            }
+        }
+        return count;
+    }
+}
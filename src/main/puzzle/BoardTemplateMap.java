@@ -1,6 +1,8 @@
 package main.puzzle;
 
+import java.lang.ref.SoftReference;
 import java.util.List;
+import java.util.function.Supplier;
 import main.util.DoubleKeyHashMap;
 
 /**
@@ -9,21 +11,49 @@ import main.util.DoubleKeyHashMap;
  */
 public class BoardTemplateMap {
 
-    private final DoubleKeyHashMap<String, Integer, List<BoardTemplate>> data = new DoubleKeyHashMap<>();
+    // Templates are loaded on the first get and may be reclaimed when memory is low
+    // A board without templates is put without a loader
+    private final DoubleKeyHashMap<String, Integer, SoftReference<List<BoardTemplate>>> data = new DoubleKeyHashMap<>();
+    private final DoubleKeyHashMap<String, Integer, SoftReference<BoardTemplateIndex>> indexMap = new DoubleKeyHashMap<>();
+    private final DoubleKeyHashMap<String, Integer, Supplier<List<BoardTemplate>>> loaderMap = new DoubleKeyHashMap<>();
     private final DoubleKeyHashMap<String, Integer, Shape.Type> minTypeMap = new DoubleKeyHashMap<>();
 
-    public void put(String name, int star, List<BoardTemplate> templates, Shape.Type minType) {
-        if (!templates.isEmpty()) {
-            data.put(name, star, templates);
+    public synchronized void put(String name, int star, Supplier<List<BoardTemplate>> loader, Shape.Type minType) {
+        if (loader != null) {
+            loaderMap.put(name, star, loader);
         }
+        data.put(name, star, null);
         minTypeMap.put(name, star, minType);
     }
 
-    public List<BoardTemplate> get(String name, int star) {
-        if (containsKey(name, star)) {
-            return data.get(name, star);
+    public synchronized List<BoardTemplate> get(String name, int star) {
+        if (!loaderMap.containsKey(name, star)) {
+            return null;
         }
-        return null;
+        SoftReference<List<BoardTemplate>> ref = data.get(name, star);
+        List<BoardTemplate> templates = ref == null ? null : ref.get();
+        if (templates == null) {
+            templates = loaderMap.get(name, star).get();
+            data.put(name, star, new SoftReference<>(templates));
+        }
+        if (templates.isEmpty()) {
+            return null;
+        }
+        return templates;
+    }
+
+    public synchronized BoardTemplateIndex getIndex(String name, int star) {
+        List<BoardTemplate> templates = get(name, star);
+        if (templates == null) {
+            return null;
+        }
+        SoftReference<BoardTemplateIndex> ref = indexMap.get(name, star);
+        BoardTemplateIndex index = ref == null ? null : ref.get();
+        if (index == null || index.getTemplates() != templates) {
+            index = new BoardTemplateIndex(templates);
+            indexMap.put(name, star, new SoftReference<>(index));
+        }
+        return index;
     }
 
     public Shape.Type getMinType(String name, int star) {
@@ -33,8 +63,9 @@ public class BoardTemplateMap {
         return Shape.Type.NONE;
     }
 
+    // Does not load the templates, so it can be called from the EDT while another thread is loading
     public boolean containsKey(String name, int star) {
-        return data.containsKey(name, star);
+        return loaderMap.containsKey(name, star);
     }
 
     private boolean containsMinTypeKey(String name, int star) {
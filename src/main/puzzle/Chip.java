@@ -36,6 +36,9 @@ public class Chip implements Serializable {
     public static final int STAR_MIN = 2;
     public static final int STAR_MAX = 5;
 
+    // Stat by rate, type, star, level, and pt
+    private static final int[][][][][] STAT_TABLE = initStatTable();
+
     private final String id;
     private final Shape shape;
 
@@ -380,12 +383,28 @@ public class Chip implements Serializable {
     }
 
     public Stat getStat() {
-        return new Stat(
-                getStat(RATE_DMG, this, pt.dmg),
-                getStat(RATE_BRK, this, pt.brk),
-                getStat(RATE_HIT, this, pt.hit),
-                getStat(RATE_RLD, this, pt.rld)
-        );
+        return new Stat(getStat(Stat.DMG), getStat(Stat.BRK), getStat(Stat.HIT), getStat(Stat.RLD));
+    }
+
+    public int getStat(int type) {
+        int p;
+        switch (type) {
+            case Stat.DMG:
+                p = pt.dmg;
+                break;
+            case Stat.BRK:
+                p = pt.brk;
+                break;
+            case Stat.HIT:
+                p = pt.hit;
+                break;
+            case Stat.RLD:
+                p = pt.rld;
+                break;
+            default:
+                throw new AssertionError();
+        }
+        return getStat(type, getType(), star, level, p);
     }
 
     public static int getStat(Rational rate, Chip c, int pt) {
@@ -393,10 +412,49 @@ public class Chip implements Serializable {
     }
 
     public static int getStat(Rational rate, Shape.Type type, int star, int level, int pt) {
+        for (int i = 0; i < RATES.length; i++) {
+            if (RATES[i] == rate) {
+                return getStat(i, type, star, level, pt);
+            }
+        }
+        return calcStat(rate, type, star, level, pt);
+    }
+
+    private static int getStat(int rateIndex, Shape.Type type, int star, int level, int pt) {
+        if (0 <= star && star <= STAR_MAX && 0 <= level && level <= LEVEL_MAX && 0 <= pt && pt <= PT_MAX) {
+            return STAT_TABLE[rateIndex][type.id][star][level][pt];
+        }
+        return calcStat(RATES[rateIndex], type, star, level, pt);
+    }
+
+    private static int calcStat(Rational rate, Shape.Type type, int star, int level, int pt) {
         int base = new Rational(pt).mult(rate).mult(getTypeMult(type, star)).getIntCeil();
         return getLevelMult(level).mult(base).getIntCeil();
     }
 
+    private static int[][][][][] initStatTable() {
+        Shape.Type[] types = Shape.Type.values();
+        int[][][][][] table = new int[RATES.length][types.length][STAR_MAX + 1][LEVEL_MAX + 1][PT_MAX + 1];
+        for (int r = 0; r < RATES.length; r++) {
+            for (Shape.Type type : types) {
+                for (int star = 0; star <= STAR_MAX; star++) {
+                    for (int level = 0; level <= LEVEL_MAX; level++) {
+                        for (int pt = 0; pt <= PT_MAX; pt++) {
+                            table[r][type.id][star][level][pt] = calcStat(RATES[r], type, star, level, pt);
+                        }
+                    }
+                }
+            }
+        }
+        return table;
+    }
+
+    // Same value as new Rational(stat).div(RATES[type]).getDouble()
+    public static double getRatedStat(int type, int stat) {
+        Rational rate = RATES[type];
+        return (double) (stat * rate.getDenominator()) / rate.getNumerator();
+    }
+
     public Stat getOldStat() {
         int dmg = getOldStat(RATE_DMG, this, pt.dmg);
         int brk = getOldStat(RATE_BRK, this, pt.brk);
@@ -0,0 +1,78 @@
+package main.puzzle;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ *
+ * @author Bunnyspa
+ */
+public class ChipIndex {
+
+    // Chip ID -> handle; a handle is the position the chip was added at and is never reused
+    private final Map<String, Integer> handles = new HashMap<>();
+    private final List<Chip> chips = new ArrayList<>();
+
+    public ChipIndex() {
+    }
+
+    public ChipIndex(Collection<Chip> chips) {
+        addAll(chips);
+    }
+
+    // Returns the handle of the chip; a chip with the ID of an indexed chip keeps the handle of the first
+    public int add(Chip c) {
+        Integer handle = handles.get(c.getID());
+        if (handle != null) {
+            return handle;
+        }
+        int h = chips.size();
+        handles.put(c.getID(), h);
+        chips.add(c);
+        return h;
+    }
+
+    public void addAll(Collection<Chip> chips) {
+        chips.forEach((c) -> add(c));
+    }
+
+    public void remove(Chip c) {
+        Integer handle = handles.get(c.getID());
+        if (handle != null && chips.get(handle) == c) {
+            handles.remove(c.getID());
+            chips.set(handle, null);
+        }
+    }
+
+    public void clear() {
+        handles.clear();
+        chips.clear();
+    }
+
+    // -1 if the ID is not indexed
+    public int getHandle(String id) {
+        Integer handle = handles.get(id);
+        return handle == null ? -1 : handle;
+    }
+
+    public Chip get(int handle) {
+        return chips.get(handle);
+    }
+
+    public Chip get(String id) {
+        Integer handle = handles.get(id);
+        return handle == null ? null : chips.get(handle);
+    }
+
+    public boolean contains(String id) {
+        return handles.containsKey(id);
+    }
+
+    // Number of handles given, including the removed chips
+    public int getHandleCount() {
+        return chips.size();
+    }
+}
@@ -0,0 +1,230 @@
+package main.puzzle;
+
+import java.awt.Point;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ *
+ * @author Bunnyspa
+ */
+public class PuzzleMask {
+
+    // Bit (row * SIZE + col) of a long is a cell of the board
+    public static final int SIZE = 8;
+    public static final int NUM_CELL = SIZE * SIZE;
+
+    // Cell index after a clockwise rotation
+    private static final int[] ROTATED_INDEX = new int[NUM_CELL];
+    // Shape -> rotation -> pivot location -> mask (0 if out of the board)
+    private static final Map<Shape, long[][]> SHAPE_MASKS = new HashMap<>();
+
+    static {
+        for (int row = 0; row < SIZE; row++) {
+            for (int col = 0; col < SIZE; col++) {
+                ROTATED_INDEX[index(row, col)] = index(col, SIZE - row - 1);
+            }
+        }
+        for (Shape shape : Shape.values()) {
+            if (shape == Shape.NONE) {
+                continue;
+            }
+            long[][] masks = new long[shape.getMaxRotation()][NUM_CELL];
+            for (int r = 0; r < masks.length; r++) {
+                Point pivot = Shape.PIVOTS.get(shape, r);
+                Set<Point> points = Shape.POINTS.get(shape, r);
+                for (int i = 0; i < NUM_CELL; i++) {
+                    int dx = i / SIZE - pivot.x;
+                    int dy = i % SIZE - pivot.y;
+                    long mask = 0;
+                    for (Point p : points) {
+                        int x = p.x + dx;
+                        int y = p.y + dy;
+                        if (!isValid(x, y)) {
+                            mask = 0;
+                            break;
+                        }
+                        mask |= bit(x, y);
+                    }
+                    masks[r][i] = mask;
+                }
+            }
+            SHAPE_MASKS.put(shape, masks);
+        }
+    }
+
+    public static boolean isValid(int row, int col) {
+        return 0 <= row && row < SIZE && 0 <= col && col < SIZE;
+    }
+
+    public static int index(int row, int col) {
+        return row * SIZE + col;
+    }
+
+    public static int index(Point p) {
+        return index(p.x, p.y);
+    }
+
+    public static Point toPoint(int index) {
+        return new Point(index / SIZE, index % SIZE);
+    }
+
+    public static long bit(int row, int col) {
+        return 1L << index(row, col);
+    }
+
+    public static <E> long get(PuzzleMatrix<E> matrix, E e) {
+        long mask = 0;
+        for (int row = 0; row < Math.min(SIZE, matrix.getNumRow()); row++) {
+            for (int col = 0; col < Math.min(SIZE, matrix.getNumCol()); col++) {
+                if (e.equals(matrix.get(row, col))) {
+                    mask |= bit(row, col);
+                }
+            }
+        }
+        return mask;
+    }
+
+    // Cells of the shape with its pivot at the location, or 0 if any cell is out of the board
+    public static long get(Shape shape, int rotation, Point location) {
+        if (!isValid(location.x, location.y)) {
+            return 0;
+        }
+        return get(shape, rotation, index(location));
+    }
+
+    public static long get(Shape shape, int rotation, int location) {
+        long[][] masks = SHAPE_MASKS.get(shape);
+        return masks[rotation % masks.length][location];
+    }
+
+    public static boolean isPlaceable(long empty, long chip) {
+        return chip != 0 && (chip & ~empty) == 0;
+    }
+
+    public static long rotate(long mask, int num) {
+        num = num % 4;
+        for (int i = 0; i < num; i++) {
+            long out = 0;
+            for (long m = mask; m != 0; m &= m - 1) {
+                out |= 1L << ROTATED_INDEX[Long.numberOfTrailingZeros(m)];
+            }
+            mask = out;
+        }
+        return mask;
+    }
+
+    // Rows lo..hi in reverse order
+    public static long flipRows(long mask, int lo, int hi) {
+        return shift(Long.reverseBytes(mask), (lo + hi - SIZE + 1) * SIZE);
+    }
+
+    // Columns lo..hi in reverse order
+    public static long flipCols(long mask, int lo, int hi) {
+        return shift(Long.reverse(Long.reverseBytes(mask)), lo + hi - SIZE + 1);
+    }
+
+    // (row, col) -> (col, row)
+    public static long transpose(long mask) {
+        long t;
+        t = 0x0f0f0f0f00000000L & (mask ^ (mask << 28));
+        mask ^= t ^ (t >>> 28);
+        t = 0x3333000033330000L & (mask ^ (mask << 14));
+        mask ^= t ^ (t >>> 14);
+        t = 0x5500550055005500L & (mask ^ (mask << 7));
+        mask ^= t ^ (t >>> 7);
+        return mask;
+    }
+
+    private static long shift(long mask, int n) {
+        return 0 <= n ? mask << n : mask >>> -n;
+    }
+
+    // {row min, row max, col min, col max}
+    public static int[] getBound(long mask) {
+        int rows = 0, cols = 0;
+        for (int row = 0; row < SIZE; row++) {
+            int b = (int) (mask >>> (row * SIZE)) & 0xff;
+            if (b != 0) {
+                rows |= 1 << row;
+                cols |= b;
+            }
+        }
+        return new int[]{
+            Integer.numberOfTrailingZeros(rows), 31 - Integer.numberOfLeadingZeros(rows),
+            Integer.numberOfTrailingZeros(cols), 31 - Integer.numberOfLeadingZeros(cols)
+        };
+    }
+
+    // Same as PuzzleMatrix.isSymmetric with the cells of colors[i] having the value i:
+    // a reflection or the point symmetry inside the bound of the used cells maps colors onto colors one to one
+    public static boolean isSymmetric(long used, long[] colors) {
+        if (used == 0) {
+            return true;
+        }
+        if (colors.length > Long.SIZE) {
+            return false;
+        }
+        int[] b = getBound(used);
+        long box = 0;
+        for (int row = b[0]; row <= b[1]; row++) {
+            for (int col = b[2]; col <= b[3]; col++) {
+                box |= bit(row, col);
+            }
+        }
+        for (int line = 0; line < 5; line++) {
+            if (isSymmetric(colors, box, b, line)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isSymmetric(long[] colors, long box, int[] b, int line) {
+        long[] pairs = new long[colors.length];
+        for (int i = 0; i < colors.length; i++) {
+            long m = colors[i] & box;
+            if (m == 0) {
+                continue;
+            }
+            long image;
+            switch (line) {
+                case 0: // -
+                    image = flipRows(m, b[0], b[1]);
+                    break;
+                case 1: // |
+                    image = flipCols(m, b[2], b[3]);
+                    break;
+                case 2: // \
+                    image = transpose(m);
+                    break;
+                case 3: // /
+                    image = flipCols(flipRows(transpose(m), b[2], b[3]), b[0], b[1]);
+                    break;
+                default: // Dot
+                    image = flipCols(flipRows(m, b[0], b[1]), b[2], b[3]);
+            }
+            for (int j = 0; j < colors.length; j++) {
+                if ((image & colors[j]) != 0) {
+                    pairs[i] |= 1L << j;
+                    pairs[j] |= 1L << i;
+                }
+            }
+        }
+        for (long p : pairs) {
+            if (Long.bitCount(p) > 1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // First cell in row-major order, same as PuzzleMatrix.getPivot
+    public static Point getPivot(long mask) {
+        if (mask == 0) {
+            return null;
+        }
+        return toPoint(Long.numberOfTrailingZeros(mask));
+    }
+}
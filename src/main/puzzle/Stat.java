@@ -21,11 +21,10 @@ public class Stat implements Comparable<Stat>, Serializable {
         int hit = 0;
         int rld = 0;
         for (Chip chip : chips) {
-            Stat s = chip.getStat();
-            dmg += s.dmg;
-            brk += s.brk;
-            hit += s.hit;
-            rld += s.rld;
+            dmg += chip.getStat(DMG);
+            brk += chip.getStat(BRK);
+            hit += chip.getStat(HIT);
+            rld += chip.getStat(RLD);
         }
         return new Stat(dmg, brk, hit, rld);
     }
@@ -1,20 +1,28 @@
 package main.puzzle.assembly;
 
 import java.awt.Point;
+import java.io.File;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
 import java.util.function.BooleanSupplier;
 import main.iterator.ChipCiterator;
 import main.iterator.ShapeCiterator;
 import main.puzzle.Board;
 import main.puzzle.BoardTemplate;
+import main.puzzle.BoardTemplateIndex;
 import main.puzzle.BoardTemplateMap;
-import main.puzzle.Chip;
 import main.puzzle.Puzzle;
+import main.puzzle.PuzzleMask;
 import main.puzzle.PuzzleMatrix;
 import main.puzzle.Shape;
 import main.puzzle.assembly.dxz.DXZ;
@@ -43,15 +51,21 @@ public class Assembler {
     }
 
     private static final int RESULT_LIMIT = 100;
+    private static final int QUEUE_SIZE = 5;
+    private static final int DXZ_WINDOW = 4;
+    // Jobs per thread that may be handed out ahead of the first unfinished one
+    private static final int JOB_WINDOW = 4;
 
     private static final BoardTemplateMap fullBTM, partialBTM;
+    // DXZ results of earlier runs
+    private static final BoardTemplateCache TEMPLATE_CACHE = new BoardTemplateCache();
 
     static {
-        // Full BoardTemplate
+        // Full BoardTemplate, loaded when the board is first used
         fullBTM = new BoardTemplateMap();
         for (String name : Board.NAMES) {
             for (int star = 1; star <= 5; star++) {
-                List<BoardTemplate> templates = IO.loadBoardTemplates(name, star, false);
+                int s = star;
                 Shape.Type minType = Shape.Type._5A;
                 if (Board.NAME_M2.equals(name)
                         || (Board.NAME_MK153.equals(name) && star <= 2)) {
@@ -59,13 +73,12 @@ public class Assembler {
                 } else if (Board.NAME_MK153.equals(name) && star == 5) {
                     minType = Shape.Type._5B;
                 }
-                fullBTM.put(name, star, templates, minType);
+                fullBTM.put(name, star, IO.hasBoardTemplates(name, s, false) ? () -> IO.loadBoardTemplates(name, s, false) : null, minType);
             }
         }
         // Partial BoardTemplate
         partialBTM = new BoardTemplateMap();
-        List<BoardTemplate> templates = IO.loadBoardTemplates(Board.NAME_M2, 5, true);
-        partialBTM.put(Board.NAME_M2, 5, templates, Shape.Type._5B);
+        partialBTM.put(Board.NAME_M2, 5, () -> IO.loadBoardTemplates(Board.NAME_M2, 5, true), Shape.Type._5B);
     }
 
     private final Intermediate intermediate;
@@ -74,20 +87,34 @@ public class Assembler {
     private CalcExtraSetting ces;
     private Progress progress;
     private boolean boardsChanged;
+    private int nThread = Runtime.getRuntime().availableProcessors();
+    private boolean bounded;
+    private String checkpointFile;
+    private int checkpointInterval;
+    private int checkpointDone;
+    // The checkpoint thread is stopped with this flag, not interrupted, so that a save in progress completes
+    private final Object checkpointLock = new Object();
+    private boolean checkpointStopped;
+    private final Map<Integer, Job> doneJobs = new HashMap<>();
+    // Bounds doneJobs: a permit is taken for each job handed out and returned when it is merged
+    private Semaphore jobWindow;
+    private volatile Board threshold;
 
     private volatile Status status = Status.STOPPED;
     private final BooleanSupplier checkPause = () -> checkPause();
+    private final Object pauseLock = new Object();
+    private final List<Thread> threads = new ArrayList<>();
 
     public Assembler(Intermediate i) {
         this.intermediate = i;
     }
 
     public boolean btExists(String name, int star, boolean alt) {
-        return getBT(name, star, alt) != null;
+        return alt ? partialBTM.containsKey(name, star) : fullBTM.containsKey(name, star);
     }
 
-    private List<BoardTemplate> getBT(String name, int star, boolean alt) {
-        return alt ? partialBTM.get(name, star) : fullBTM.get(name, star);
+    private BoardTemplateIndex getBTIndex(String name, int star, boolean alt) {
+        return alt ? partialBTM.getIndex(name, star) : fullBTM.getIndex(name, star);
     }
 
     public Shape.Type getMinType(String name, int star, boolean alt) {
@@ -98,20 +125,49 @@ public class Assembler {
         return partialBTM.containsKey(name, star);
     }
 
+    // Loads the templates of the board in the background before the calculation starts
+    public static void prefetchBT(String name, int star) {
+        Thread thread = new Thread(() -> {
+            fullBTM.get(name, star);
+            partialBTM.get(name, star);
+        });
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void setThreadCount(int n) {
+        nThread = 0 < n ? n : Runtime.getRuntime().availableProcessors();
+    }
+
+    // Skips combinations that cannot enter the result; nComb then counts only the evaluated ones
+    public void setBounded(boolean bounded) {
+        this.bounded = bounded;
+    }
+
+    // Saves the progress to the file every given seconds while calculating; 0 seconds to disable
+    public void setCheckpoint(String fileName, int seconds) {
+        this.checkpointFile = fileName;
+        this.checkpointInterval = seconds;
+    }
+
     public void set(CalcSetting cs, CalcExtraSetting ces, Progress p) {
         this.cs = cs;
         this.ces = ces;
         this.progress = p;
+        doneJobs.clear();
+        updateThreshold();
         new Thread(() -> {
-            if (status == Status.STOPPED) {
-                status = Status.PAUSED;
+            synchronized (pauseLock) {
+                if (status == Status.STOPPED) {
+                    status = Status.PAUSED;
+                }
             }
             if (ces.calcMode != CalcExtraSetting.CALCMODE_FINISHED) {
                 combine();
             } else {
                 setProgBar();
             }
-            status = Status.STOPPED;
+            setStatus(Status.STOPPED);
             intermediate.stop();
         }).start();
     }
@@ -122,15 +178,26 @@ public class Assembler {
     }
 
     public void pause() {
-        status = Status.PAUSED;
+        setStatus(Status.PAUSED);
     }
 
     public void resume() {
-        status = Status.RUNNING;
+        setStatus(Status.RUNNING);
     }
 
     public void stop() {
-        status = Status.STOPPED;
+        setStatus(Status.STOPPED);
+        // Wake up threads blocked on the queue
+        synchronized (threads) {
+            threads.forEach((t) -> t.interrupt());
+        }
+    }
+
+    private void setStatus(Status s) {
+        synchronized (pauseLock) {
+            status = s;
+            pauseLock.notifyAll();
+        }
     }
 
     public Status getStatus() {
@@ -141,9 +208,9 @@ public class Assembler {
         return boardsChanged;
     }
 
-    public AssemblyResult getResult() {
+    public synchronized AssemblyResult getResult() {
         boardsChanged = false;
-        return new AssemblyResult(progress.getBoards(), progress.getChipFreqs());
+        return new AssemblyResult(progress.getBoardSnapshot(), progress.getChipFreqs());
     }
 
     private void setProgBar() {
@@ -151,44 +218,120 @@ public class Assembler {
     }
 
     private void combine() {
-        BlockingQueue<BoardTemplate> q = new ArrayBlockingQueue<>(5);
+        BlockingQueue<Job> q = new ArrayBlockingQueue<>(QUEUE_SIZE + nThread);
+        jobWindow = new Semaphore(QUEUE_SIZE + JOB_WINDOW * nThread);
         ChipCiterator cit = new ChipCiterator(ces.chips);
-
-        Thread templateThread = new Thread(() -> combine_template(q, cit));
-        Thread assembleThread = new Thread(() -> combine_assemble(q, cit));
-
-        templateThread.start();
-        assembleThread.start();
+        ChipTable table = new ChipTable(ces.chips, cs);
+
+        synchronized (threads) {
+            threads.clear();
+            BlockingQueue<TemplateTask> tasks = new LinkedBlockingQueue<>();
+            threads.add(new Thread(() -> combine_template(q, cit, tasks)));
+            if (ces.calcMode != CalcExtraSetting.CALCMODE_DICTIONARY) {
+                for (int i = 0; i < nThread; i++) {
+                    threads.add(new Thread(() -> combine_template_dxz(tasks)));
+                }
+            }
+            for (int i = 0; i < nThread; i++) {
+                threads.add(new Thread(() -> combine_assemble(q, table)));
+            }
+            threads.forEach((t) -> t.start());
+        }
+        Thread checkpoint = null;
+        if (checkpointFile != null && 0 < checkpointInterval) {
+            checkpointDone = progress.nDone;
+            checkpointStopped = false;
+            checkpoint = new Thread(() -> combine_checkpoint());
+            checkpoint.setDaemon(true);
+            checkpoint.start();
+        }
         try {
-            templateThread.join();
-            assembleThread.join();
+            for (Thread t : threads) {
+                t.join();
+            }
         } catch (InterruptedException ex) {
         }
+        synchronized (threads) {
+            threads.clear();
+        }
+        if (ces.calcMode != CalcExtraSetting.CALCMODE_DICTIONARY) {
+            flushTemplateCache();
+        }
+        if (checkpoint != null) {
+            synchronized (checkpointLock) {
+                checkpointStopped = true;
+                checkpointLock.notifyAll();
+            }
+            try {
+                checkpoint.join();
+            } catch (InterruptedException ex) {
+            }
+            // A stopped run is kept so that it can be resumed; a finished one does not need it
+            if (status == Status.STOPPED) {
+                checkpoint();
+            } else {
+                new File(checkpointFile).delete();
+            }
+        }
     }
 
-    private void combine_template(BlockingQueue<BoardTemplate> q, ChipCiterator chipCit) {
-        // Dictionary
-        if (ces.calcMode == CalcExtraSetting.CALCMODE_DICTIONARY) {
-            List<BoardTemplate> templates = getBT(cs.boardName, cs.boardStar, ces.calcModeTag == 1);
-
-            int count = 0;
-            for (BoardTemplate boardTemplate : templates) {
-                if (chipCit.hasEnoughChips(boardTemplate)) {
-                    if (!cs.symmetry || boardTemplate.isSymmetric()) {
-                        count++;
+    private void combine_checkpoint() {
+        while (true) {
+            synchronized (checkpointLock) {
+                long end = System.currentTimeMillis() + checkpointInterval * 1000L;
+                long wait;
+                while (!checkpointStopped && 0 < (wait = end - System.currentTimeMillis())) {
+                    try {
+                        checkpointLock.wait(wait);
+                    } catch (InterruptedException ex) {
+                        return;
                     }
                 }
+                if (checkpointStopped) {
+                    return;
+                }
+            }
+            checkpoint();
+        }
+    }
+
+    private void checkpoint() {
+        ProgressFile pf;
+        int nDone;
+        // Jobs are merged while holding the lock, so the copy is consistent; the file is written without it
+        synchronized (this) {
+            if (progress.nDone == checkpointDone) {
+                return;
             }
-            progress.nTotal = count;
+            nDone = progress.nDone;
+            pf = new ProgressFile(cs, ces, new Progress(ces.sortType, progress.nComb, progress.nDone, progress.nTotal, progress.getBoards()));
+        }
+        // A failed save is retried with the next checkpoint
+        if (IO.saveProgressFile(checkpointFile, pf)) {
+            synchronized (this) {
+                checkpointDone = nDone;
+            }
+        }
+    }
+
+    private void combine_template(BlockingQueue<Job> q, ChipCiterator chipCit, BlockingQueue<TemplateTask> tasks) {
+        int index = progress.nDone;
+        // Dictionary
+        if (ces.calcMode == CalcExtraSetting.CALCMODE_DICTIONARY) {
+            BoardTemplateIndex btIndex = getBTIndex(cs.boardName, cs.boardStar, ces.calcModeTag == 1);
+            List<BoardTemplate> templates = btIndex.getTemplates();
+
+            // Whole groups of templates are filtered by their shape counts
+            boolean[] enough = btIndex.getEnoughGroups(chipCit.getCandidateCounts());
+            progress.nTotal = btIndex.getTemplateCount(enough, cs.symmetry);
 
             setProgBar();
 
-            Iterator<BoardTemplate> pIt = templates.subList(progress.nDone, templates.size()).iterator();
-            while (checkPause() && pIt.hasNext()) {
-                BoardTemplate template = pIt.next();
-                if ((!cs.symmetry || template.isSymmetric())
-                        && chipCit.hasEnoughChips(template)) {
-                    offer(q, template);
+            for (int i = progress.nDone; checkPause() && i < templates.size(); i++) {
+                BoardTemplate template = templates.get(i);
+                if (enough[btIndex.getGroup(i)]
+                        && (!cs.symmetry || template.isSymmetric())) {
+                    offerJob(q, new Job(index++, template));
                 }
             }
         } //
@@ -199,49 +342,107 @@ public class Assembler {
             setProgBar();
 
             shapeCit.skip(progress.nDone);
-            while (checkPause() && shapeCit.hasNext()) {
-                BoardTemplate template = combine_template_dxz(shapeCit);
-                offer(q, template);
+            // Solvers work ahead on a window of shapes; templates are queued in the order of the shapes
+            Deque<TemplateTask> window = new ArrayDeque<>();
+            boolean running = true;
+            while (running && checkPause() && shapeCit.hasNext()) {
+                if (window.size() == DXZ_WINDOW * nThread) {
+                    running = offer(q, index++, window.poll());
+                }
+                TemplateTask task;
+                if (!shapeCit.isNextValid()) {
+                    shapeCit.skip();
+                    task = new TemplateTask(null);
+                    task.set(BoardTemplate.empty());
+                } else {
+                    task = new TemplateTask(shapeCit.next());
+                    tasks.add(task);
+                }
+                window.add(task);
+            }
+            while (running && checkPause() && !window.isEmpty()) {
+                running = offer(q, index++, window.poll());
+            }
+            for (int i = 0; i < nThread; i++) {
+                tasks.add(new TemplateTask(null));
             }
         }
-        offer(q, BoardTemplate.end());
+        for (int i = 0; i < nThread; i++) {
+            offer(q, new Job(-1, BoardTemplate.end()));
+        }
     }
 
-    private BoardTemplate combine_template_dxz(ShapeCiterator citerator) {
-        if (!citerator.isNextValid()) {
-            citerator.skip();
-            return BoardTemplate.empty();
+    private void combine_template_dxz(BlockingQueue<TemplateTask> tasks) {
+        while (checkPause()) {
+            TemplateTask task;
+            try {
+                task = tasks.take();
+            } catch (InterruptedException ex) {
+                return;
+            }
+            if (task.shapes == null) {
+                return;
+            }
+            task.set(generateTemplate(cs.boardName, cs.boardStar, task.shapes, checkPause));
+        }
+    }
+
+    private boolean offer(BlockingQueue<Job> q, int index, TemplateTask task) {
+        try {
+            return offerJob(q, new Job(index, task.get()));
+        } catch (InterruptedException ex) {
+            return false;
         }
-        List<Shape> shapes = citerator.next();
-        return generateTemplate(cs.boardName, cs.boardStar, shapes, checkPause);
     }
 
     public static BoardTemplate generateTemplate(String boardName, int boardStar, List<Shape> shapes, BooleanSupplier checkPause) {
-        return generateTemplate_DXZ(boardName, boardStar, shapes, checkPause);
+        BoardTemplate template = TEMPLATE_CACHE.get(boardName, boardStar, shapes);
+        if (template != null) {
+            return template;
+        }
+        template = generateTemplate_DXZ(boardName, boardStar, shapes, checkPause);
+        // A stopped search is not an answer
+        if (checkPause.getAsBoolean()) {
+            TEMPLATE_CACHE.put(boardName, boardStar, shapes, template);
+        }
+        return template;
+    }
+
+    public static void flushTemplateCache() {
+        TEMPLATE_CACHE.flush();
     }
 
     private static BoardTemplate generateTemplate_DXZ(String boardName, int boardStar, List<Shape> shapes, BooleanSupplier checkPause) {
         PuzzleMatrix<Integer> puzzle = Board.initMatrix(boardName, boardStar);
 
         Set<Point> emptyCoords = puzzle.getPoints(Board.EMPTY);
+        long emptyMask = PuzzleMask.get(puzzle, Board.EMPTY);
 
         int nCol_name = shapes.size();
         int nCol_cell = puzzle.getNumContaining(Board.EMPTY);
         int nCol = nCol_name + nCol_cell;
 
         List<Point> cols_pt = new ArrayList<>(emptyCoords);
-        List<boolean[]> rows = new ArrayList<>();
+        int[] cols_index = new int[PuzzleMask.NUM_CELL];
+        for (int i = 0; i < cols_pt.size(); i++) {
+            cols_index[PuzzleMask.index(cols_pt.get(i))] = nCol_name + i;
+        }
+        List<int[]> rows = new ArrayList<>();
         List<Puzzle> rows_puzzle = new ArrayList<>();
 
         for (int i = 0; i < nCol_name; i++) {
             Shape shape = shapes.get(i);
             for (int rot = 0; rot < shape.getMaxRotation(); rot++) {
                 for (Point bp : emptyCoords) {
-                    Set<Point> tps = translate(shape, rot, bp);
-                    if (Board.isChipPlaceable(puzzle, tps)) {
-                        boolean[] row = new boolean[nCol];
-                        row[i] = true;
-                        tps.forEach((p) -> row[nCol_name + cols_pt.indexOf(p)] = true);
+                    long mask = PuzzleMask.get(shape, rot, bp);
+                    if (PuzzleMask.isPlaceable(emptyMask, mask)) {
+                        int[] row = new int[1 + Long.bitCount(mask)];
+                        row[0] = i;
+                        int n = 1;
+                        for (long m = mask; m != 0; m &= m - 1) {
+                            row[n++] = cols_index[Long.numberOfTrailingZeros(m)];
+                        }
+                        Arrays.sort(row, 1, n);
                         rows.add(row);
                         rows_puzzle.add(new Puzzle(shape, rot, bp));
                     }
@@ -253,7 +454,7 @@ public class Assembler {
             return BoardTemplate.empty();
         }
 
-        Set<Integer> resultRows = DXZ.solve(rows, checkPause);
+        Set<Integer> resultRows = DXZ.solve(rows, nCol, checkPause);
         if (resultRows == null) {
             return BoardTemplate.empty();
         }
@@ -268,109 +469,183 @@ public class Assembler {
         return bt;
     }
 
-    private static Set<Point> translate(Shape shape, int rotation, Point bp) {
-        Point cfp = shape.getPivot(rotation);
-        Set<Point> cps = shape.getPoints(rotation);
-        for (Point cp : cps) {
-            cp.translate(bp.x - cfp.x, bp.y - cfp.y);
-        }
-        return cps;
-    }
-
-    private void combine_assemble(BlockingQueue<BoardTemplate> q, ChipCiterator cit) {
+    private void combine_assemble(BlockingQueue<Job> q, ChipTable table) {
+        ChipCiterator cit = new ChipCiterator(ces.chips);
         while (checkPause()) {
-            BoardTemplate template = poll(q);
-            if (template == null || template.isEnd()) {
+            Job job = poll(q);
+            if (job == null || job.template.isEnd()) {
                 return;
             }
+            BoardTemplate template = job.template;
             if (!template.isEmpty()) {
                 // Show progress
                 intermediate.show(template);
-                cit.init(template);
-                // For all combinations
+                ChipCiterator.Bound bound = bounded
+                        ? (dmg, brk, hit, rld) -> job.canEnter(table.getStatPerc(dmg, brk, hit, rld))
+                        : null;
+                cit.init(template, cs.pt, bound);
+                // For all combinations; the indexes and stat sum are views updated in place by skip()
+                int[] indexes = cit.getIndexes();
+                int[] stat = cit.getStatSum();
+                int[] rotationCounts = new int[BoardTemplate.getRotationKeyCount()];
                 while (checkPause() && cit.hasNext()) {
-                    List<Chip> candidates = cit.next();
-                    // Check PT
-                    boolean addable = true;
-                    int[] pt = cs.pt.toArray();
-                    for (Chip c : candidates) {
-                        int[] cpt = c.getPt().toArray();
-                        for (int i = 0; i < 4; i++) {
-                            pt[i] -= cpt[i];
-                            if (pt[i] < 0) {
-                                addable = false;
-                                break;
-                            }
-                        }
-                        if (!addable) {
-                            break;
+                    // PT is already in range; score on the chip table and build a board only if it can be kept
+                    if (isMarkInRange(table, indexes)) {
+                        double statPerc = table.getStatPerc(stat[0], stat[1], stat[2], stat[3]);
+                        int xp = table.getXP(indexes);
+                        if (job.canEnter(statPerc, xp)) {
+                            job.add(new Board(cs.boardName, cs.boardStar, cs.stat, table.getChips(indexes), template));
+                        } else if (cs.rotation || Board.getNumRotationNeeded(cs.boardName, cs.boardStar, table.getRotationCounts(indexes, rotationCounts), indexes.length, template) == 0) {
+                            job.nComb++;
                         }
                     }
+                    cit.skip();
+                }
+                if (!checkPause()) {
+                    return;
+                }
+            }
+            publishJob(job);
+        }
+    }
 
-                    // add
-                    if (addable) {
-                        publishBoard(new Board(cs.boardName, cs.boardStar, cs.stat, candidates, template));
-                    }
+    private synchronized void publishJob(Job job) {
+        // Only a contiguous prefix of finished templates is merged so that nDone stays resumable
+        doneJobs.put(job.index, job);
+        while (doneJobs.containsKey(progress.nDone)) {
+            Job done = doneJobs.remove(progress.nDone);
+            jobWindow.release();
+            for (Board board : done.boards.getBoards()) {
+                progress.addBoard(board);
+                if (RESULT_LIMIT > 0 && progress.getBoardSize() > RESULT_LIMIT) {
+                    progress.removeLastBoard();
                 }
             }
+            if (0 < done.nComb) {
+                progress.nComb += done.nComb;
+                boardsChanged = true;
+            }
             prog_inc();
         }
+        updateThreshold();
+    }
+
+    private void updateThreshold() {
+        threshold = RESULT_LIMIT > 0 && progress.getBoardSize() >= RESULT_LIMIT ? progress.getLastBoard() : null;
     }
 
-    public synchronized void publishBoard(Board board) {
+    private boolean isMarkInRange(ChipTable table, int[] indexes) {
+        int count;
         switch (ces.markType) {
             case Setting.BOARD_MARKTYPE_CELL:
-                if (board.getMarkedCellCount() < ces.markMin || ces.markMax < board.getMarkedCellCount()) {
-                    return;
-                }
+                count = table.getMarkedCellCount(indexes);
                 break;
             case Setting.BOARD_MARKTYPE_CHIP:
-                if (board.getMarkedChipCount() < ces.markMin || ces.markMax < board.getMarkedChipCount()) {
-                    return;
-                }
+                count = table.getMarkedChipCount(indexes);
                 break;
             default:
                 throw new AssertionError();
         }
-
-//        board.minimizeTicket();
-        board.colorChips();
-
-        if (cs.rotation || board.getTicketCount() == 0) {
-            progress.addBoard(board);
-            if (RESULT_LIMIT > 0 && progress.getBoardSize() > RESULT_LIMIT) {
-                progress.removeLastBoard();
-            }
-            progress.nComb++;
-            boardsChanged = true;
-        }
+        return ces.markMin <= count && count <= ces.markMax;
     }
 
-    private synchronized boolean checkPause() {
-        while (status == Status.PAUSED) {
-            wait_();
+    private boolean checkPause() {
+        // Lock only while paused; a running assembler pays a single volatile read
+        if (status == Status.PAUSED) {
+            synchronized (pauseLock) {
+                while (status == Status.PAUSED) {
+                    try {
+                        pauseLock.wait();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        return false;
+                    }
+                }
+            }
         }
         return status == Status.RUNNING;
     }
 
-    private void offer(BlockingQueue<BoardTemplate> q, BoardTemplate template) {
-        while (checkPause() && !q.offer(template)) {
-            wait_();
+    // Waits while the jobs handed out run too far ahead of the merged ones
+    private boolean offerJob(BlockingQueue<Job> q, Job job) {
+        try {
+            jobWindow.acquire();
+        } catch (InterruptedException ex) {
+            return false;
         }
+        offer(q, job);
+        return true;
     }
 
-    private BoardTemplate poll(BlockingQueue<BoardTemplate> q) {
-        BoardTemplate template = null;
-        while (checkPause() && null == (template = q.poll())) {
-            wait_();
+    private void offer(BlockingQueue<Job> q, Job job) {
+        try {
+            if (checkPause()) {
+                q.put(job);
+            }
+        } catch (InterruptedException ex) {
         }
-        return template;
     }
 
-    private synchronized void wait_() {
+    private Job poll(BlockingQueue<Job> q) {
         try {
-            wait(10);
+            return checkPause() ? q.take() : null;
         } catch (InterruptedException ex) {
+            return null;
+        }
+    }
+
+    // Shapes to be solved by a DXZ solver thread; null shapes end the solver
+    private static class TemplateTask {
+
+        final List<Shape> shapes;
+        private BoardTemplate template;
+
+        TemplateTask(List<Shape> shapes) {
+            this.shapes = shapes;
+        }
+
+        synchronized void set(BoardTemplate template) {
+            this.template = template;
+            notifyAll();
+        }
+
+        synchronized BoardTemplate get() throws InterruptedException {
+            while (template == null) {
+                wait();
+            }
+            return template;
+        }
+    }
+
+    private class Job {
+
+        final int index;
+        final BoardTemplate template;
+        final BoardCollector boards;
+        int nComb;
+
+        Job(int index, BoardTemplate template) {
+            this.index = index;
+            this.template = template;
+            this.boards = new BoardCollector(ces.sortType, RESULT_LIMIT);
+        }
+
+        boolean canEnter(double statPerc) {
+            return BoardCollector.canEnter(threshold, statPerc) && boards.canEnter(statPerc);
+        }
+
+        // Boards that cannot beat either the merged or this template's worst kept board are not built
+        boolean canEnter(double statPerc, int xp) {
+            return BoardCollector.canEnter(threshold, ces.sortType, statPerc, xp)
+                    && boards.canEnter(statPerc, xp);
+        }
+
+        void add(Board board) {
+            board.colorChips();
+            if (cs.rotation || board.getTicketCount() == 0) {
+                boards.add(board);
+                nComb++;
+            }
         }
     }
 }
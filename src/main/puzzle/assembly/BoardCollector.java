@@ -0,0 +1,66 @@
+package main.puzzle.assembly;
+
+import java.util.Collection;
+import java.util.TreeSet;
+import main.puzzle.Board;
+import main.setting.Setting;
+
+/**
+ *
+ * @author Bunnyspa
+ */
+class BoardCollector {
+
+    private final TreeSet<Board> boards;
+    private final int sortType;
+    private final int limit;
+
+    BoardCollector(int sortType, int limit) {
+        this.boards = new TreeSet<>(Progress.getComparator(sortType));
+        this.sortType = sortType;
+        this.limit = limit;
+    }
+
+    void add(Board board) {
+        boards.add(board);
+        if (limit > 0 && boards.size() > limit) {
+            boards.pollLast();
+        }
+    }
+
+    Collection<Board> getBoards() {
+        return boards;
+    }
+
+    // The worst board kept, or null if a new board is always accepted
+    Board getThreshold() {
+        if (limit > 0 && boards.size() >= limit) {
+            return boards.last();
+        }
+        return null;
+    }
+
+    boolean canEnter(double statPerc, int xp) {
+        return canEnter(getThreshold(), sortType, statPerc, xp);
+    }
+
+    boolean canEnter(double statPerc) {
+        return canEnter(getThreshold(), statPerc);
+    }
+
+    static boolean canEnter(Board threshold, double statPerc) {
+        return threshold == null || threshold.getStatPerc() <= statPerc;
+    }
+
+    // Ticket count is unknown before the board is built, so a tie on the known keys is admitted
+    static boolean canEnter(Board threshold, int sortType, double statPerc, int xp) {
+        if (threshold == null) {
+            return true;
+        }
+        int percent = Double.compare(statPerc, threshold.getStatPerc());
+        if (percent != 0) {
+            return percent > 0;
+        }
+        return sortType != Setting.BOARD_SORTTYPE_XP || xp <= threshold.getXP();
+    }
+}
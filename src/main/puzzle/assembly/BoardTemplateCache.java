@@ -0,0 +1,163 @@
+package main.puzzle.assembly;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+import main.App;
+import main.puzzle.BoardTemplate;
+import main.puzzle.Shape;
+import main.util.IO;
+
+/**
+ *
+ * @author Bunnyspa
+ */
+class BoardTemplateCache {
+
+    // Line: name;star;sorted shape ids;template data (empty if there is no tiling);CRC32 of the rest
+    // The file is appended to and is rewritten on load when it has invalid, duplicate or too many lines
+    // It is discarded when the app version changes
+    private static final int MAX_SIZE = 10000;
+    // Lines written at once
+    private static final int BATCH_SIZE = 64;
+
+    // Oldest first
+    private final Map<String, String> data = new LinkedHashMap<String, String>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return MAX_SIZE < size();
+        }
+    };
+    private boolean loaded;
+    private List<String> pending = new ArrayList<>();
+
+    // The file is written while holding this lock only, so that get and put do not wait for the disk
+    private final Object writeLock = new Object();
+    private BufferedWriter writer;
+
+    synchronized BoardTemplate get(String name, int star, List<Shape> shapes) {
+        load();
+        String key = toKey(name, star, shapes);
+        String value = data.get(key);
+        if (value == null) {
+            return null;
+        }
+        if (value.isEmpty()) {
+            return BoardTemplate.empty();
+        }
+        try {
+            return IO.loadBoardTemplate(name, star, value);
+        } catch (Exception ex) {
+            data.remove(key);
+            return null;
+        }
+    }
+
+    void put(String name, int star, List<Shape> shapes, BoardTemplate template) {
+        List<String> batch = null;
+        synchronized (this) {
+            load();
+            String key = toKey(name, star, shapes);
+            String value = template.isEmpty() ? "" : template.toData();
+            if (value.equals(data.get(key))) {
+                return;
+            }
+            data.put(key, value);
+            pending.add(toLine(key, value));
+            if (BATCH_SIZE <= pending.size()) {
+                batch = pending;
+                pending = new ArrayList<>();
+            }
+        }
+        if (batch != null) {
+            write(batch, false);
+        }
+    }
+
+    // Writes the remaining lines and closes the file; called at the end of a run
+    void flush() {
+        List<String> batch;
+        synchronized (this) {
+            batch = pending;
+            pending = new ArrayList<>();
+        }
+        write(batch, true);
+    }
+
+    private void write(List<String> lines, boolean close) {
+        synchronized (writeLock) {
+            try {
+                if (!lines.isEmpty()) {
+                    if (writer == null) {
+                        writer = IO.appendTemplateCache();
+                    }
+                    for (String line : lines) {
+                        writer.write(line);
+                        writer.newLine();
+                    }
+                    writer.flush();
+                }
+                if (close && writer != null) {
+                    writer.close();
+                    writer = null;
+                }
+            } catch (IOException ex) {
+                App.log(ex);
+                writer = null;
+            }
+        }
+    }
+
+    private void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        List<String> lines = IO.loadTemplateCache();
+        String header = App.VERSION.toData();
+        boolean rewrite = lines.isEmpty() || !header.equals(lines.get(0));
+        if (!rewrite) {
+            for (String line : lines.subList(1, lines.size())) {
+                int i = line.lastIndexOf(';');
+                String record = i < 0 ? "" : line.substring(0, i);
+                String[] split = record.split(";", 4);
+                // A line cut off by a crash or joined with the next one is dropped
+                if (split.length == 4 && line.substring(i + 1).equals(checksum(record))) {
+                    data.remove(split[0] + ";" + split[1] + ";" + split[2]);
+                    data.put(split[0] + ";" + split[1] + ";" + split[2], split[3]);
+                } else {
+                    rewrite = true;
+                }
+            }
+            rewrite = rewrite || data.size() < lines.size() - 1;
+        }
+        if (rewrite) {
+            List<String> out = new ArrayList<>(data.size() + 1);
+            out.add(header);
+            data.forEach((k, v) -> out.add(toLine(k, v)));
+            IO.saveTemplateCache(out);
+        }
+    }
+
+    private static String toLine(String key, String value) {
+        String record = key + ";" + value;
+        return record + ";" + checksum(record);
+    }
+
+    private static String checksum(String record) {
+        CRC32 crc = new CRC32();
+        crc.update(record.getBytes(StandardCharsets.UTF_8));
+        return Long.toHexString(crc.getValue());
+    }
+
+    private static String toKey(String name, int star, List<Shape> shapes) {
+        return name + ";" + star + ";"
+                + shapes.stream().mapToInt((s) -> s.id).sorted().mapToObj(String::valueOf).collect(Collectors.joining(","));
+    }
+}
@@ -0,0 +1,131 @@
+package main.puzzle.assembly;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import main.puzzle.BoardTemplate;
+import main.puzzle.Chip;
+
+/**
+ *
+ * @author Bunnyspa
+ */
+class ChipTable {
+
+    private final List<Chip> chips;
+    private final int[][] pts, stats;
+    private final int[] sizes, xps, rotationKeys;
+    private final boolean[] marked;
+
+    private final int[] maxStat;
+    private final double[][] percs;
+    private final double maxPerc;
+
+    ChipTable(List<Chip> chips, CalcSetting cs) {
+        int n = chips.size();
+        this.chips = chips;
+        this.pts = new int[n][];
+        this.stats = new int[n][];
+        this.sizes = new int[n];
+        this.xps = new int[n];
+        this.rotationKeys = new int[n];
+        this.marked = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            Chip c = chips.get(i);
+            pts[i] = c.getPt().toArray();
+            stats[i] = c.getStat().toArray();
+            sizes[i] = c.getSize();
+            xps[i] = c.getCumulXP();
+            rotationKeys[i] = BoardTemplate.getRotationKey(c.getShape(), c.getInitRotation());
+            marked[i] = c.isMarked();
+        }
+
+        // Stat is limited by the max stat, so every term of the percentage can be looked up
+        this.maxStat = cs.stat.toArray();
+        this.percs = new double[4][];
+        double m = 0;
+        for (int i = 0; i < 4; i++) {
+            percs[i] = new double[Math.max(0, maxStat[i]) + 1];
+            for (int v = 0; v < percs[i].length; v++) {
+                percs[i][v] = Chip.getRatedStat(i, v);
+            }
+            m += Chip.getRatedStat(i, maxStat[i]);
+        }
+        this.maxPerc = m;
+    }
+
+    int getMarkedCellCount(int[] indexes) {
+        int sum = 0;
+        for (int index : indexes) {
+            if (marked[index]) {
+                sum += sizes[index];
+            }
+        }
+        return sum;
+    }
+
+    int getMarkedChipCount(int[] indexes) {
+        int count = 0;
+        for (int index : indexes) {
+            if (marked[index]) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    int getXP(int[] indexes) {
+        int xp = 0;
+        for (int index : indexes) {
+            xp += xps[index];
+        }
+        return xp;
+    }
+
+    // Same value as Board.getStatPerc(Stat.chipStatSum(chips), cs.stat)
+    double getStatPerc(int[] indexes) {
+        int dmg = 0, brk = 0, hit = 0, rld = 0;
+        for (int index : indexes) {
+            int[] stat = stats[index];
+            dmg += stat[0];
+            brk += stat[1];
+            hit += stat[2];
+            rld += stat[3];
+        }
+        return getStatPerc(dmg, brk, hit, rld);
+    }
+
+    double getStatPerc(int dmg, int brk, int hit, int rld) {
+        if (maxStat[0] == 0 && maxStat[1] == 0 && maxStat[2] == 0 && maxStat[3] == 0) {
+            return 1.0;
+        }
+        if (maxStat[0] <= dmg && maxStat[1] <= brk && maxStat[2] <= hit && maxStat[3] <= rld) {
+            return 1.0;
+        }
+        double s = percs[0][Math.min(dmg, maxStat[0])]
+                + percs[1][Math.min(brk, maxStat[1])]
+                + percs[2][Math.min(hit, maxStat[2])]
+                + percs[3][Math.min(rld, maxStat[3])];
+        if (maxPerc == 0) {
+            return 1.0;
+        }
+        return s / maxPerc;
+    }
+
+    // Same as BoardTemplate.getRotationCounts(getChips(indexes)), written to out
+    int[] getRotationCounts(int[] indexes, int[] out) {
+        Arrays.fill(out, 0);
+        for (int index : indexes) {
+            out[rotationKeys[index]]++;
+        }
+        return out;
+    }
+
+    List<Chip> getChips(int[] indexes) {
+        List<Chip> out = new ArrayList<>(indexes.length);
+        for (int index : indexes) {
+            out.add(chips.get(index));
+        }
+        return out;
+    }
+}
@@ -1,14 +1,14 @@
 package main.puzzle.assembly;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.TreeSet;
 import main.puzzle.Board;
 import main.puzzle.Chip;
+import main.puzzle.ChipIndex;
 import main.setting.Setting;
 
 /**
@@ -23,6 +23,25 @@ public class Progress {
     public int nTotal;
     private TreeSet<Board> boards;
 
+    // Chip frequencies of the boards by chip handle, updated as boards are added and removed
+    private final ChipIndex freqIndex = new ChipIndex();
+    private int[] freqCounts = new int[16];
+    private double[] freqPercs = new double[16];
+    // Count times best percentage; a chip on no board has 0
+    private double[] freqVals = new double[16];
+    // Handles of the chips on a board, highest value first and ties in handle order
+    private final TreeSet<Integer> freqOrder = new TreeSet<>((h1, h2) -> {
+        int val = Double.compare(freqVals[h2], freqVals[h1]);
+        return val != 0 ? val : Integer.compare(h1, h2);
+    });
+    // Frequencies of the last snapshot by handle, reused while the chip and the maximum do not change
+    private ChipFreq[] freqCache = new ChipFreq[16];
+    private double freqCacheMax;
+
+    // Snapshots for the UI, rebuilt after the boards change
+    private List<Board> boardSnapshot;
+    private List<ChipFreq> freqSnapshot;
+
     public Progress(int sortType) {
         this.nDone = 0;
         this.boards = new TreeSet<>(getComparator(sortType));
@@ -34,26 +53,47 @@ public class Progress {
         this.nTotal = progMax;
 
         this.boards = new TreeSet<>(getComparator(sortType));
-        this.boards.addAll(boards);
+        boards.forEach((b) -> addBoard(b));
     }
 
     public List<Board> getBoards() {
         return new ArrayList<>(boards);
     }
 
+    // Unmodifiable; the same list is returned until the boards change
+    public List<Board> getBoardSnapshot() {
+        if (boardSnapshot == null) {
+            boardSnapshot = Collections.unmodifiableList(new ArrayList<>(boards));
+        }
+        return boardSnapshot;
+    }
+
     public int getBoardSize() {
         return boards.size();
     }
 
     public void addBoard(Board board) {
-        boards.add(board);
+        if (boards.add(board)) {
+            freq_add(board);
+            boardSnapshot = null;
+            freqSnapshot = null;
+        }
     }
 
     public void removeLastBoard() {
-        boards.pollLast();
+        Board board = boards.pollLast();
+        if (board != null) {
+            freq_remove(board);
+            boardSnapshot = null;
+            freqSnapshot = null;
+        }
+    }
+
+    public Board getLastBoard() {
+        return boards.isEmpty() ? null : boards.last();
     }
 
-    private static Comparator<Board> getComparator(int sortType) {
+    static Comparator<Board> getComparator(int sortType) {
         return sortType == Setting.BOARD_SORTTYPE_XP
                 ? (o1, o2) -> {
                     int percent = Double.compare(o2.getStatPerc(), o1.getStatPerc());
@@ -87,45 +127,71 @@ public class Progress {
                 };
     }
 
-    public List<ChipFreq> getChipFreqs() {
-        Map<String, Integer> countMap = new HashMap<>();
-        Map<String, Double> percMap = new HashMap<>();
-        Map<String, Chip> chipIDMap = new HashMap<>();
-        for (Board b : boards) {
-            for (String id : b.getChipIDs()) {
-                if (!countMap.containsKey(id)) {
-                    countMap.put(id, 0);
-                    percMap.put(id, 0.0);
-                    chipIDMap.put(id, new Chip(b.getChip(id)));
+    private void freq_add(Board board) {
+        double perc = board.getStatPerc();
+        board.forEachChip((c) -> {
+            int h = freqIndex.getHandle(c.getID());
+            if (h < 0) {
+                Chip chip = new Chip(c);
+                chip.resetRotation();
+                chip.resetLevel();
+                h = freqIndex.add(chip);
+                if (freqCounts.length <= h) {
+                    freqCounts = Arrays.copyOf(freqCounts, h * 2);
+                    freqPercs = Arrays.copyOf(freqPercs, h * 2);
+                    freqVals = Arrays.copyOf(freqVals, h * 2);
+                    freqCache = Arrays.copyOf(freqCache, h * 2);
                 }
-                countMap.put(id, countMap.get(id) + 1);
-                percMap.put(id, Math.max(percMap.get(id), b.getStatPerc()));
             }
-        }
-
-        double max = 1;
+            // Removed before the value changes so that the order stays consistent
+            freqOrder.remove(h);
+            freqCounts[h]++;
+            freqPercs[h] = Math.max(freqPercs[h], perc);
+            freqVals[h] = freqCounts[h] * freqPercs[h];
+            freqCache[h] = null;
+            freqOrder.add(h);
+        });
+    }
 
-        for (String id : countMap.keySet()) {
-            double val = countMap.get(id) * percMap.get(id);
-            if (max < val) {
-                max = val;
+    // Only the last board is removed, and its percentage is the lowest,
+    // so the best percentage of a chip still on another board does not change
+    // A chip on no board keeps its handle, so the handles are bounded by the number of distinct chips
+    private void freq_remove(Board board) {
+        board.forEachChip((c) -> {
+            int h = freqIndex.getHandle(c.getID());
+            freqOrder.remove(h);
+            freqCounts[h]--;
+            freqCache[h] = null;
+            if (freqCounts[h] == 0) {
+                freqPercs[h] = 0;
+                freqVals[h] = 0;
+            } else {
+                freqVals[h] = freqCounts[h] * freqPercs[h];
+                freqOrder.add(h);
             }
-        }
-
-        final double max_ = max;
+        });
+    }
 
-        List<ChipFreq> out = new ArrayList<>(countMap.size());
-        for (String id : countMap.keySet()) {
-            int count = countMap.get(id);
-            Chip c = chipIDMap.get(id);
-            c.resetRotation();
-            c.resetLevel();
-            double freq = count * percMap.get(id) / max_;
-            out.add(new ChipFreq(c, count, freq));
+    // Unmodifiable; the same list is returned until the boards change
+    // The order is kept by freq_add and freq_remove, and only the changed chips get a new ChipFreq
+    // unless the maximum changes
+    public List<ChipFreq> getChipFreqs() {
+        if (freqSnapshot != null) {
+            return freqSnapshot;
+        }
+        double max = freqOrder.isEmpty() ? 1 : Math.max(1, freqVals[freqOrder.first()]);
+        boolean maxChanged = max != freqCacheMax;
+        freqCacheMax = max;
+
+        List<ChipFreq> out = new ArrayList<>(freqOrder.size());
+        for (int h : freqOrder) {
+            if (maxChanged || freqCache[h] == null) {
+                freqCache[h] = new ChipFreq(freqIndex.get(h), freqCounts[h], freqVals[h] / max);
+            }
+            out.add(freqCache[h]);
         }
 
-        Collections.sort(out, (o1, o2) -> Double.compare(o2.freq, o1.freq));
-
-        return out;
+        freqSnapshot = Collections.unmodifiableList(out);
+        return freqSnapshot;
     }
 }
@@ -5,17 +5,17 @@
  */
 package main.puzzle.assembly.dxz;
 
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.Stack;
 import java.util.function.BooleanSupplier;
-import main.puzzle.assembly.dxz.dlx.ColumnNode;
-import main.puzzle.assembly.dxz.dlx.DLXNode;
 import main.puzzle.assembly.dxz.dlx.DancingLinksMatrix;
 import main.puzzle.assembly.dxz.zdd.ZDD;
 import main.puzzle.assembly.dxz.zdd.ZDDMemoCache;
-import main.puzzle.assembly.dxz.zdd.ZDDNode;
 import main.puzzle.assembly.dxz.zdd.ZDDNodeTable;
-import main.util.Pair;
 
 /**
  *
@@ -23,125 +23,91 @@ import main.util.Pair;
  */
 public class DXZ {
 
-    public static Set<Integer> solve(List<boolean[]> rows, BooleanSupplier checkPause) {
-        DancingLinksMatrix X = new DancingLinksMatrix(rows);
-        return dxz(X, checkPause);
+    // One exact cover or null
+    public static Set<Integer> solve(List<int[]> rows, int nCol, BooleanSupplier checkPause) {
+        DancingLinksMatrix X = new DancingLinksMatrix(rows, nCol);
+        return dlx(X, checkPause);
     }
 
-//    private static Set<Integer> axz(ExactCoverMatrix X, BooleanSupplier checkPause) {
-//        ZDDNode node = axz_search(X, new ZDDMemoCache(), new ZDDNodeTable(), checkPause);
-//        if (node == null) {
-//            return null;
-//        }
-//        Set<Set<Integer>> sets = node.get();
-//        if (sets.isEmpty()) {
-//            return null;
-//        }
-//        return sets.iterator().next();
-//    }
-//
-//    private static ZDDNode axz_search(ExactCoverMatrix A, ZDDMemoCache C, ZDDNodeTable Z, BooleanSupplier checkPause) {
-//        if (A.isEmpty()) {
-//            return ZDD.TRUE_TERMINAL;
-//        }
-//        Set<Integer> colA = A.getCols();
-//        if (C.containsKey(colA)) {
-//            return C.get(colA);
-//        }
-//        Set<Integer> rowA = A.getRows();
-//        int c = A.getCol();
-//        ZDDNode x = null;
-//        for (int r : rowA) {
-//            if (checkPause.getAsBoolean() && A.get(r, c)) {
-//                A.cover(r);
-//                ZDDNode y = axz_search(A, C, Z, checkPause);
-//                if (y != null) {
-//                    x = ZDD.unique(r, x, y, Z);
-//                }
-//                A.uncover();
-//            }
-//        }
-//        C.put(colA, x);
-//        return x;
-//    }
-//
-//    private static Set<Integer> dlx(DancingLinksMatrix X, BooleanSupplier checkPause) {
-//        Set<Integer> ans = new HashSet<>();
-//        dlx_search(X, new Stack<>(), ans, checkPause);
-//        if (ans.isEmpty()) {
-//            return null;
-//        }
-//        return ans;
-//    }
-//
-//    private static boolean dlx_search(DancingLinksMatrix A, Stack<Integer> R, Set<Integer> ans, BooleanSupplier checkPause) {
-//        Set<Integer> colA = A.getColumns();
-//        if (colA.isEmpty()) {
-//            ans.addAll(R);
-//            return true;
-//        }
-//        ColumnNode c = A.selectColumn();
-//        c.cover();
-//        for (DLXNode r = c.D; r != c; r = r.D) {
-//            R.push(r.rowIndex);
-//            for (DLXNode j = r.R; j != r; j = j.R) {
-//                j.column.cover();
-//            }
-//            if (dlx_search(A, R, ans, checkPause)) {
-//                return true;
-//            }
-//            R.pop();
-//            for (DLXNode j = r.L; j != r; j = j.L) {
-//                j.column.uncover();
-//            }
-//        }
-//        c.uncover();
-//        return false;
-//    }
+    // Every exact cover; incomplete if checkPause fails during the search
+    public static Iterator<Set<Integer>> solveAll(List<int[]> rows, int nCol, BooleanSupplier checkPause) {
+        DancingLinksMatrix X = new DancingLinksMatrix(rows, nCol);
+        ZDDNodeTable Z = new ZDDNodeTable();
+        int node = dxz_search(X, new ZDDMemoCache(), Z, checkPause);
+        return Z.iterator(node);
+    }
 
-    private static Set<Integer> dxz(DancingLinksMatrix X, BooleanSupplier checkPause) {
-        ZDDNode node = dxz_search(X, new ZDDMemoCache(), new ZDDNodeTable(), checkPause).first;
-        if (node == null) {
+    private static Set<Integer> dlx(DancingLinksMatrix X, BooleanSupplier checkPause) {
+        Stack<Integer> R = new Stack<>();
+        if (!dlx_search(X, R, new HashSet<>(), checkPause)) {
             return null;
         }
-        Set<Set<Integer>> sets = node.get();
-        if (sets.isEmpty()) {
-            return null;
+        // Deepest row first, the same insertion order as the ZDD paths
+        Set<Integer> out = new HashSet<>();
+        for (int i = R.size() - 1; 0 <= i; i--) {
+            out.add(R.get(i));
         }
-        return sets.iterator().next();
+        return out;
     }
 
-    private static Pair<ZDDNode, Boolean> dxz_search(DancingLinksMatrix A, ZDDMemoCache C, ZDDNodeTable Z, BooleanSupplier checkPause) {
-        // System.out.println(depth + ": " + A);
-        Set<Integer> colA = A.getColumns();
-        if (colA.isEmpty()) {
-            return new Pair<>(ZDD.TRUE_TERMINAL, true);
+    // Column sets in failed have no exact cover; unsatisfiable subproblems are not searched twice
+    private static boolean dlx_search(DancingLinksMatrix A, Stack<Integer> R, Set<BitSet> failed, BooleanSupplier checkPause) {
+        if (A.isEmpty()) {
+            return true;
         }
-        if (C.containsKey(colA)) {
-            return new Pair<>(C.get(colA), false);
+        BitSet colA = A.getColumns();
+        if (!checkPause.getAsBoolean() || failed.contains(colA)) {
+            return false;
         }
-        ColumnNode c = A.selectColumn();
-        ZDDNode x = null;
-        c.cover();
-        for (DLXNode r = c.D; r != c; r = r.D) {
-            for (DLXNode j = r.R; j != r; j = j.R) {
-                j.column.cover();
-            }
-            Pair<ZDDNode, Boolean> p = dxz_search(A, C, Z, checkPause);
-            ZDDNode y = p.first;
-            if (y != null) {
-                x = ZDD.unique(r.rowIndex, x, y, Z);
+        int c = A.selectColumn();
+        A.cover(c);
+        for (int r = A.down(c); r != c; r = A.down(r)) {
+            R.push(A.getRow(r));
+            for (int j = A.right(r); j != r; j = A.right(j)) {
+                A.cover(A.getColumn(j));
             }
-            if (p.second) {
-                return new Pair<>(x, true);
+            if (dlx_search(A, R, failed, checkPause)) {
+                return true;
             }
-            for (DLXNode j = r.L; j != r; j = j.L) {
-                j.column.uncover();
+            R.pop();
+            for (int j = A.left(r); j != r; j = A.left(j)) {
+                A.uncover(A.getColumn(j));
             }
+        }
+        A.uncover(c);
+        failed.add(colA);
+        return false;
+    }
 
+    private static int dxz_search(DancingLinksMatrix A, ZDDMemoCache C, ZDDNodeTable Z, BooleanSupplier checkPause) {
+        if (A.isEmpty()) {
+            return ZDD.TRUE_TERMINAL;
+        }
+        BitSet colA = A.getColumns();
+        Integer cached = C.get(colA);
+        if (cached != null) {
+            return cached;
+        }
+        if (!checkPause.getAsBoolean()) {
+            return ZDD.FALSE_TERMINAL;
+        }
+        int c = A.selectColumn();
+        int x = ZDD.FALSE_TERMINAL;
+        A.cover(c);
+        for (int r = A.down(c); r != c; r = A.down(r)) {
+            for (int j = A.right(r); j != r; j = A.right(j)) {
+                A.cover(A.getColumn(j));
+            }
+            int y = dxz_search(A, C, Z, checkPause);
+            if (y != ZDD.FALSE_TERMINAL) {
+                x = ZDD.unique(A.getRow(r), x, y, Z);
+            }
+            for (int j = A.left(r); j != r; j = A.left(j)) {
+                A.uncover(A.getColumn(j));
+            }
         }
+        A.uncover(c);
         C.put(colA, x);
-        c.uncover();
-        return new Pair<>(x, false);
+        return x;
     }
 }
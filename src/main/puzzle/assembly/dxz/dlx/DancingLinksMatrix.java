@@ -5,10 +5,8 @@
  */
 package main.puzzle.assembly.dxz.dlx;
 
-import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.BitSet;
 import java.util.List;
-import java.util.Set;
 
 /**
  *
@@ -16,77 +14,140 @@ import java.util.Set;
  */
 public class DancingLinksMatrix {
 
-    private final ColumnNode header;
+    // Node 0 is the header, 1 to nCol are the columns, and the rest are the cells
+    private static final int HEADER = 0;
 
-    public DancingLinksMatrix(List<boolean[]> matrix) {
-        header = create(matrix);
-    }
+    private final int[] L, R, U, D;
+    private final int[] column, row, size;
 
-    private ColumnNode create(List<boolean[]> matrix) {
-        final int nCol = matrix.get(0).length;
-        ColumnNode headerNode = new ColumnNode(-1);
-        List<ColumnNode> columnNodes = new ArrayList<>();
+    // Visible columns, updated on cover and uncover
+    private final long[] colWords;
 
-        for (int i = 0; i < nCol; i++) {
-            ColumnNode n = new ColumnNode(i);
-            columnNodes.add(n);
-            headerNode = (ColumnNode) headerNode.linkRight(n);
+    // Each row is a list of its column indices
+    public DancingLinksMatrix(List<int[]> rows, int nCol) {
+        int nNode = 1 + nCol;
+        for (int[] r : rows) {
+            nNode += r.length;
+        }
+        L = new int[nNode];
+        R = new int[nNode];
+        U = new int[nNode];
+        D = new int[nNode];
+        column = new int[nNode];
+        row = new int[nNode];
+        size = new int[1 + nCol];
+        colWords = new long[(nCol + 63) / 64];
+
+        for (int c = 0; c <= nCol; c++) {
+            L[c] = c == 0 ? nCol : c - 1;
+            R[c] = c == nCol ? 0 : c + 1;
+            U[c] = D[c] = c;
+            column[c] = c;
+            row[c] = -1;
+        }
+        for (int c = 0; c < nCol; c++) {
+            colWords[c >> 6] |= 1L << c;
         }
 
-        headerNode = headerNode.R.column;
-
-        for (int r = 0; r < matrix.size(); r++) {
-            boolean[] row = matrix.get(r);
-            DLXNode prev = null;
-            for (int c = 0; c < nCol; c++) {
-                if (row[c]) {
-                    ColumnNode colNode = columnNodes.get(c);
-                    DLXNode newNode = new DLXNode(r, colNode);
-
-                    if (prev == null) {
-                        prev = newNode;
-                    }
-
-                    colNode.U.linkDown(newNode);
-                    prev = prev.linkRight(newNode);
-                    colNode.size++;
-                }
+        int node = 1 + nCol;
+        for (int r = 0; r < rows.size(); r++) {
+            int first = node;
+            for (int colIndex : rows.get(r)) {
+                int c = colIndex + 1;
+                // Append to the bottom of the column
+                U[node] = U[c];
+                D[node] = c;
+                D[U[c]] = node;
+                U[c] = node;
+                // Append to the right end of the row
+                L[node] = node == first ? node : node - 1;
+                R[node] = first;
+                R[L[node]] = node;
+                L[first] = node;
+                column[node] = c;
+                row[node] = r;
+                size[c]++;
+                node++;
             }
         }
-
-        headerNode.size = nCol;
-        return headerNode;
     }
 
-    public ColumnNode selectColumn() {
-        ColumnNode out = header.R.column;
-        int minSize = out.size;
+    public boolean isEmpty() {
+        return R[HEADER] == HEADER;
+    }
 
-        for (ColumnNode c = out.R.column; c != header; c = c.R.column) {
-            if (c.size < minSize) {
+    // The column with the fewest rows, first one if tied.
+    // Sizes are counted once when built and are not updated by cover.
+    public int selectColumn() {
+        int out = R[HEADER];
+        int minSize = size[out];
+        for (int c = R[out]; c != HEADER; c = R[c]) {
+            if (size[c] < minSize) {
                 out = c;
-                minSize = c.size;
+                minSize = size[c];
             }
         }
-
         return out;
     }
 
-    public Set<Integer> getColumns() {
-        Set<Integer> out = new HashSet<>();
+    public void cover(int c) {
+        L[R[c]] = L[c];
+        R[L[c]] = R[c];
+        colWords[(c - 1) >> 6] &= ~(1L << (c - 1));
+        for (int i = D[c]; i != c; i = D[i]) {
+            for (int j = R[i]; j != i; j = R[j]) {
+                U[D[j]] = U[j];
+                D[U[j]] = D[j];
+            }
+        }
+    }
 
-        for (ColumnNode c = header.R.column; c != header; c = c.R.column) {
-            out.add(c.colIndex);
+    public void uncover(int c) {
+        for (int i = U[c]; i != c; i = U[i]) {
+            for (int j = L[i]; j != i; j = L[j]) {
+                U[D[j]] = j;
+                D[U[j]] = j;
+            }
         }
+        L[R[c]] = c;
+        R[L[c]] = c;
+        colWords[(c - 1) >> 6] |= 1L << (c - 1);
+    }
 
-        return out;
+    public int up(int node) {
+        return U[node];
+    }
+
+    public int down(int node) {
+        return D[node];
+    }
+
+    public int left(int node) {
+        return L[node];
+    }
+
+    public int right(int node) {
+        return R[node];
+    }
+
+    public int getColumn(int node) {
+        return column[node];
+    }
+
+    public int getRow(int node) {
+        return row[node];
+    }
+
+    // Snapshot of the visible columns, usable as a memo key
+    public BitSet getColumns() {
+        return BitSet.valueOf(colWords);
     }
 
     @Override
     public String toString() {
-        StringBuilder sb= new StringBuilder();
-        for (ColumnNode c = header.R.column; c != header; c = c.R.column) {
-            sb.append(c.colIndex);
+        StringBuilder sb = new StringBuilder();
+        for (int c = R[HEADER]; c != HEADER; c = R[c]) {
+            sb.append(c - 1);
             sb.append(" ");
         }
         return sb.toString();
@@ -6,16 +6,10 @@ package main.puzzle.assembly.dxz.zdd;
  */
 public class ZDD {
 
-    public static final ZDDNode TRUE_TERMINAL = new ZDDNode();
+    public static final int FALSE_TERMINAL = 0;
+    public static final int TRUE_TERMINAL = 1;
 
-    public static ZDDNode unique(int i, ZDDNode l, ZDDNode h, ZDDNodeTable Z) {
-        ZDDNode element = Z.get(i, l, h);
-        if (element != null) {
-            return element;
-        }
-
-        ZDDNode node = new ZDDNode(i, l, h);
-        Z.add(node);
-        return node;
+    public static int unique(int i, int l, int h, ZDDNodeTable Z) {
+        return Z.unique(i, l, h);
     }
 }
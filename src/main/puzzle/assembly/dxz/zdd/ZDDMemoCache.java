@@ -1,11 +1,11 @@
 package main.puzzle.assembly.dxz.zdd;
 
+import java.util.BitSet;
 import java.util.HashMap;
-import java.util.Set;
 
 /**
  *
  * @author Bunnyspa
  */
-public class ZDDMemoCache extends HashMap<Set<Integer>, ZDDNode> {
+public class ZDDMemoCache extends HashMap<BitSet, Integer> {
 }
@@ -1,8 +1,11 @@
 package main.puzzle.assembly.dxz.zdd;
 
-import java.util.HashMap;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.HashSet;
-import java.util.Map;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 /**
@@ -11,26 +14,151 @@ import java.util.Set;
  */
 public class ZDDNodeTable {
 
-    private final Map<Integer, Set<ZDDNode>> map = new HashMap<>();
+    private static final int INIT_CAPACITY = 64;
 
-    ZDDNode get(int i, ZDDNode l, ZDDNode h) {
-        if (!map.containsKey(i)) {
-            return null;
-        }
-        for (ZDDNode node : map.get(i)) {
-            if (node.equals(i, l, h)) {
+    // Node i is (labels[i], los[i], his[i]); 0 and 1 are the terminals
+    private int[] labels, los, his;
+    private int size;
+
+    // Open addressing unique table of node indices, 0 if empty
+    private int[] table;
+    private int mask;
+
+    public ZDDNodeTable() {
+        labels = new int[INIT_CAPACITY];
+        los = new int[INIT_CAPACITY];
+        his = new int[INIT_CAPACITY];
+        size = 2;
+        table = new int[INIT_CAPACITY * 2];
+        mask = table.length - 1;
+    }
+
+    int unique(int i, int l, int h) {
+        int slot = hash(i, l, h) & mask;
+        while (table[slot] != 0) {
+            int node = table[slot];
+            if (labels[node] == i && los[node] == l && his[node] == h) {
                 return node;
             }
+            slot = (slot + 1) & mask;
+        }
+
+        if (size == labels.length) {
+            labels = Arrays.copyOf(labels, size * 2);
+            los = Arrays.copyOf(los, size * 2);
+            his = Arrays.copyOf(his, size * 2);
         }
-        return null;
+        int node = size++;
+        labels[node] = i;
+        los[node] = l;
+        his[node] = h;
+        table[slot] = node;
+        if (size * 2 > table.length) {
+            rehash();
+        }
+        return node;
     }
 
-    void add(ZDDNode node) {
-        int key = node.label;
-        if (!map.containsKey(key)) {
-            map.put(key, new HashSet<>());
+    private void rehash() {
+        table = new int[table.length * 2];
+        mask = table.length - 1;
+        for (int node = 2; node < size; node++) {
+            int slot = hash(labels[node], los[node], his[node]) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = node;
         }
-        map.get(key).add(node);
     }
 
+    private static int hash(int i, int l, int h) {
+        int hash = i;
+        hash = 31 * hash + l;
+        hash = 31 * hash + h;
+        return hash ^ (hash >>> 16);
+    }
+
+    public boolean isTerminal(int node) {
+        return node == ZDD.FALSE_TERMINAL || node == ZDD.TRUE_TERMINAL;
+    }
+
+    public int getLabel(int node) {
+        return labels[node];
+    }
+
+    public int getLo(int node) {
+        return los[node];
+    }
+
+    public int getHi(int node) {
+        return his[node];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Solutions are generated one path at a time instead of materializing the whole family
+    public Iterator<Set<Integer>> iterator(int root) {
+        return new SolutionIterator(root);
+    }
+
+    private class SolutionIterator implements Iterator<Set<Integer>> {
+
+        // {node, 1 if the hi child is taken}
+        private final Deque<int[]> path = new ArrayDeque<>();
+        private Set<Integer> next;
+
+        SolutionIterator(int root) {
+            next = descend(root);
+        }
+
+        private Set<Integer> descend(int node) {
+            while (0 <= node) {
+                while (!isTerminal(node)) {
+                    path.push(new int[]{node, 1});
+                    node = his[node];
+                }
+                if (node == ZDD.TRUE_TERMINAL) {
+                    Set<Integer> out = new HashSet<>();
+                    path.forEach((f) -> {
+                        if (f[1] == 1) {
+                            out.add(labels[f[0]]);
+                        }
+                    });
+                    return out;
+                }
+                node = backtrack();
+            }
+            return null;
+        }
+
+        // Switches the deepest hi branch to its lo child, or returns -1 if there is none
+        private int backtrack() {
+            while (!path.isEmpty()) {
+                int[] f = path.peek();
+                if (f[1] == 1) {
+                    f[1] = 0;
+                    return los[f[0]];
+                }
+                path.pop();
+            }
+            return -1;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Set<Integer> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Set<Integer> out = next;
+            next = descend(backtrack());
+            return out;
+        }
+    }
 }
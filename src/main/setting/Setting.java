@@ -55,6 +55,8 @@ public class Setting {
 
     // Inventory Display
     public int displayType = DISPLAY_STAT;
+    // Save inventory files in the binary format, which earlier versions cannot open
+    public boolean invBinary = false;
 
     // Chip
     public boolean maxLevel = true;
@@ -71,6 +73,10 @@ public class Setting {
     // Combinator
     public boolean advancedSetting = false;
     public boolean showProgImage = true;
+    public int calcThread = 0;
+    public boolean calcBound = false;
+    // Seconds between checkpoints of a running calculation; 0 to disable
+    public int calcCheckpoint = 60;
 
     // Board
     public BoardSetting board = new BoardSetting();
@@ -109,6 +115,8 @@ public class Setting {
                     // Inventory Display
                     else if (line.startsWith("DISPLAY_TYPE=")) {
                         displayType = Integer.valueOf(afterEqual(line));
+                    } else if (line.startsWith("INV_BINARY=")) {
+                        invBinary = IO.parseBoolean(afterEqual(line));
                     }//
                     // Chip
                     else if (line.startsWith("CHIP_MAXLEVEL=")) {
@@ -129,6 +137,12 @@ public class Setting {
                         advancedSetting = IO.parseBoolean(afterEqual(line));
                     } else if (line.startsWith("COMB_HIDEPROG=") || line.startsWith("COMB_SHOWPROG=")) {
                         showProgImage = IO.parseBoolean(afterEqual(line));
+                    } else if (line.startsWith("COMB_THREAD=")) {
+                        calcThread = Integer.valueOf(afterEqual(line));
+                    } else if (line.startsWith("COMB_BOUND=")) {
+                        calcBound = IO.parseBoolean(afterEqual(line));
+                    } else if (line.startsWith("COMB_CHECKPOINT=")) {
+                        calcCheckpoint = Integer.valueOf(afterEqual(line));
                     }
                 });
                 if (advancedSetting) {
@@ -175,6 +189,7 @@ public class Setting {
         lines.add("POOL_COLOR=" + poolColor);
 
         lines.add("DISPLAY_TYPE=" + displayType);
+        lines.add("INV_BINARY=" + IO.data(invBinary));
 
         lines.add("CHIP_MAXLEVEL=" + IO.data(maxLevel));
         lines.add("CHIP_MATCHCOLOR=" + IO.data(colorMatch));
@@ -185,6 +200,9 @@ public class Setting {
 
         lines.add("ADVANCED_SETTING=" + IO.data(advancedSetting));
         lines.add("COMB_SHOWPROG=" + IO.data(showProgImage));
+        lines.add("COMB_THREAD=" + calcThread);
+        lines.add("COMB_BOUND=" + IO.data(calcBound));
+        lines.add("COMB_CHECKPOINT=" + calcCheckpoint);
 
         lines.add("[" + Setting.SECTION_BOARD + "]");
         lines.add(board.toData());
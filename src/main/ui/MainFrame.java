@@ -40,6 +40,7 @@ import main.json.JsonParser;
 import main.puzzle.Board;
 import main.puzzle.BoardTemplate;
 import main.puzzle.Chip;
+import main.puzzle.ChipIndex;
 import main.puzzle.Shape;
 import main.puzzle.Stat;
 import main.puzzle.Tag;
@@ -78,6 +79,7 @@ import main.ui.tip.TipMouseListener;
 import main.ui.transfer.InvListTransferHandler;
 import main.util.Fn;
 import main.util.IO;
+import main.util.InventoryFile;
 import main.util.Ref;
 
 /**
@@ -127,12 +129,17 @@ public class MainFrame extends JFrame {
 
     // Chip
     private final List<Chip> invChips = new ArrayList<>();
+    // Chip ID -> inventory chip
+    private final ChipIndex invIndex = new ChipIndex();
 
     // File
     private final JFileChooser iofc = new JFileChooser(new File(".")); // Inventory File Chooser
     private final JFileChooser isfc = new JFileChooser(new File(".")); // Inventory File Chooser
     private final JFileChooser cfc = new JFileChooser(new File(".")); // Combination File Chooser
     private String invFile_path = "";
+    private int invFile_loadID = 0;
+    private String checkpointFile;
+    private boolean invFile_loading = false;
 
     // List
     private final DefaultListModel<Chip> poolLM = new DefaultListModel<>(),
@@ -245,6 +252,7 @@ public class MainFrame extends JFrame {
     }
 
     public void afterLoad() {
+        SwingUtilities.invokeLater(() -> progFile_openCheckpoint());
         new Thread(() -> {
             // Check app version
             IO.checkNewVersion(app);
@@ -996,7 +1004,7 @@ public class MainFrame extends JFrame {
     }
 
     private void pool_addToInv() {
-        if (!poolList.isSelectionEmpty()) {
+        if (!invFile_loading && !poolList.isSelectionEmpty()) {
             Chip poolChip = poolList.getSelectedValue();
             Chip c = new Chip(poolChip, 5 - poolStarComboBox.getSelectedIndex(), app.setting.poolColor);
             if (invList.getSelectedIndices().length == 1) {
@@ -1014,12 +1022,14 @@ public class MainFrame extends JFrame {
     // <editor-fold defaultstate="collapsed" desc="Inventory Chip Methods">
     private void inv_chipsAdd(int i, Chip c) {
         invChips.add(i, c);
+        invIndex.add(c);
         invLM.add(i, c);
         c.setDisplayType(app.setting.displayType);
     }
 
     private void inv_chipsAdd(Chip c) {
         invChips.add(c);
+        invIndex.add(c);
         invLM.addElement(c);
         c.setDisplayType(app.setting.displayType);
     }
@@ -1027,25 +1037,36 @@ public class MainFrame extends JFrame {
     public void inv_chipsLoad(Collection<Chip> cs) {
         inv_chipsClear();
         invChips.addAll(cs);
+        invIndex.addAll(cs);
         invChips.forEach((c) -> c.setDisplayType(app.setting.displayType));
         display_applyFilterSort();
     }
 
     private void inv_chipsClear() {
+        // Chips of a file still being read are no longer added
+        invFile_loadID++;
+        if (invFile_loading) {
+            invFile_setLoading(false);
+        }
         invChips.clear();
+        invIndex.clear();
         invLM.clear();
     }
 
     private void inv_chipsRemove(int i) {
-        invChips.remove((Chip) invLM.get(i));
+        Chip c = (Chip) invLM.get(i);
+        invChips.remove(c);
+        invIndex.remove(c);
         invLM.removeElementAt(i);
     }
 
     private void inv_chipsRefresh() {
         invChips.clear();
+        invIndex.clear();
         for (Enumeration<Chip> elements = invLM.elements(); elements.hasMoreElements();) {
             Chip c = elements.nextElement();
             invChips.add(c);
+            invIndex.add(c);
         }
     }
 
@@ -1161,7 +1182,9 @@ public class MainFrame extends JFrame {
     }
 
     public void invStat_enableSave() {
-        invSaveButton.setEnabled(true);
+        if (!invFile_loading) {
+            invSaveButton.setEnabled(true);
+        }
     }
 
     private void invStat_refreshLabels() {
@@ -1580,6 +1603,7 @@ public class MainFrame extends JFrame {
         setting_resetDisplay();
         boardImageLabel.setIcon(AppImage.Board.get(app, boardImageLabel.getWidth(), getBoardName(), getBoardStar()));
         boardImageLabel.repaint();
+        Assembler.prefetchBT(getBoardName(), getBoardStar());
     }
 
     public boolean setting_isPresetFilter() {
@@ -1754,22 +1778,18 @@ public class MainFrame extends JFrame {
     private void comb_updateMark() {
         for (Enumeration<Chip> combChips = combChipLM.elements(); combChips.hasMoreElements();) {
             Chip c = combChips.nextElement();
-            for (Chip invChip : invChips) {
-                if (invChip.equals(c)) {
-                    c.setMarked(invChip.isMarked());
-                    break;
-                }
+            Chip invChip = invIndex.get(c.getID());
+            if (invChip != null) {
+                c.setMarked(invChip.isMarked());
             }
         }
         combChipList.repaint();
 
         for (Enumeration<ChipFreq> combCFs = combFreqLM.elements(); combCFs.hasMoreElements();) {
             Chip c = combCFs.nextElement().chip;
-            for (Chip invChip : invChips) {
-                if (invChip.equals(c)) {
-                    c.setMarked(invChip.isMarked());
-                    break;
-                }
+            Chip invChip = invIndex.get(c.getID());
+            if (invChip != null) {
+                c.setMarked(invChip.isMarked());
             }
         }
         combFreqList.repaint();
@@ -1779,11 +1799,9 @@ public class MainFrame extends JFrame {
         List<Chip> out = new ArrayList<>();
         for (Enumeration<Chip> chipEnum = combChipLM.elements(); chipEnum.hasMoreElements();) {
             Chip c = chipEnum.nextElement();
-            for (Chip invChip : invChips) {
-                if (invChip.equals(c)) {
-                    out.add(invChip);
-                    break;
-                }
+            Chip invChip = invIndex.get(c.getID());
+            if (invChip != null) {
+                out.add(invChip);
             }
         }
         return out;
@@ -1793,11 +1811,9 @@ public class MainFrame extends JFrame {
         List<Chip> out = new ArrayList<>();
         for (Enumeration<ChipFreq> cfEnum = combFreqLM.elements(); cfEnum.hasMoreElements();) {
             Chip c = cfEnum.nextElement().chip;
-            for (Chip invChip : invChips) {
-                if (invChip.equals(c)) {
-                    out.add(invChip);
-                    break;
-                }
+            Chip invChip = invIndex.get(c.getID());
+            if (invChip != null) {
+                out.add(invChip);
             }
         }
         return out;
@@ -2073,12 +2089,16 @@ public class MainFrame extends JFrame {
                     app.setting.boardMarkMin, app.setting.boardMarkMax,
                     app.setting.boardMarkType, app.setting.boardSortType, candidates);
             progress = new Progress(app.setting.boardSortType);
+            checkpointFile = IO.getCheckpointFileName(boardName, boardStar);
             process_init();
             process_resume();
         }
     }
 
     private void process_init() {
+        assembler.setThreadCount(app.setting.calcThread);
+        assembler.setBounded(app.setting.calcBound);
+        assembler.setCheckpoint(checkpointFile, app.setting.calcCheckpoint);
         assembler.set(calcSetting, calcExtraSetting, progress);
 
         time = System.currentTimeMillis();
@@ -2118,7 +2138,7 @@ public class MainFrame extends JFrame {
         boardStarComboBox.setEnabled(status == Assembler.Status.STOPPED);
         settingButton.setEnabled(status == Assembler.Status.STOPPED);
         researchButton.setEnabled(status == Assembler.Status.STOPPED);
-        combOpenButton.setEnabled(status == Assembler.Status.STOPPED);
+        combOpenButton.setEnabled(status == Assembler.Status.STOPPED && !invFile_loading);
         combSaveButton.setEnabled(status != Assembler.Status.RUNNING && progress != null && progress.getBoardSize() > 0);
 
         process_updateProgress(status != Assembler.Status.RUNNING);
@@ -2336,27 +2356,66 @@ public class MainFrame extends JFrame {
             if (retval == JFileChooser.APPROVE_OPTION) {
                 invFile_path = iofc.getSelectedFile().getPath();
                 fileTextArea.setText(iofc.getSelectedFile().getName());
-                inv_chipsLoad(invFile_path.endsWith("." + IO.EXT_INVENTORY)
-                        ? IO.loadInventory(invFile_path)
-                        : JsonFilterDialog.filter(app, this, JsonParser.readFile(invFile_path))
-                );
+                if (invFile_path.endsWith("." + IO.EXT_INVENTORY)) {
+                    invFile_load(invFile_path);
+                } else {
+                    inv_chipsLoad(JsonFilterDialog.filter(app, this, JsonParser.readFile(invFile_path)));
+                }
                 invSaveButton.setEnabled(false);
             }
         }
     }
 
+    // Chips are read on another thread and added to the list as they are parsed
+    private void invFile_load(String path) {
+        inv_chipsClear();
+        invFile_setLoading(true);
+        int id = invFile_loadID;
+        new Thread(() -> {
+            InventoryFile.read(path, (chips) -> SwingUtilities.invokeLater(() -> {
+                if (id == invFile_loadID) {
+                    chips.forEach((c) -> inv_chipsAdd(c));
+                }
+            }));
+            SwingUtilities.invokeLater(() -> {
+                if (id == invFile_loadID) {
+                    invFile_setLoading(false);
+                    display_applyFilterSort();
+                }
+            });
+        }).start();
+    }
+
+    // A partial inventory cannot be edited or saved, and progress files are not matched against it
+    private void invFile_setLoading(boolean loading) {
+        invFile_loading = loading;
+        if (loading) {
+            invList.clearSelection();
+            invSaveButton.setEnabled(false);
+        }
+        invList.setEnabled(!loading);
+        invSaveAsButton.setEnabled(!loading);
+        invApplyButton.setEnabled(!loading);
+        addButton.setEnabled(!loading);
+        imageButton.setEnabled(!loading);
+        combOpenButton.setEnabled(!loading && assembler.getStatus() == Assembler.Status.STOPPED);
+    }
+
     private void invFile_save() {
         if (invSaveButton.isEnabled()) {
             if (invFile_path.isEmpty()) {
                 invFile_saveAs();
             } else {
-                IO.saveInventory(invFile_path, invChips);
+                IO.saveInventory(invFile_path, invChips, app.setting.invBinary);
                 invSaveButton.setEnabled(false);
             }
         }
     }
 
     private void invFile_saveAs() {
+        if (invFile_loading) {
+            return;
+        }
         int retval = isfc.showSaveDialog(this);
         if (retval == JFileChooser.APPROVE_OPTION) {
             String selectedPath = isfc.getSelectedFile().getPath();
@@ -2382,7 +2441,7 @@ public class MainFrame extends JFrame {
             // Save
             if (confirmed) {
                 invFile_path = selectedPath;
-                IO.saveInventory(invFile_path, invChips);
+                IO.saveInventory(invFile_path, invChips, app.setting.invBinary);
                 fileTextArea.setText(fileName);
                 invSaveButton.setEnabled(false);
             }
@@ -2390,6 +2449,9 @@ public class MainFrame extends JFrame {
     }
 
     private void invFile_openImageDialog() {
+        if (invFile_loading) {
+            return;
+        }
         ImageDialog.getData(app).forEach((c) -> inv_chipsAdd(c));
     }
 
@@ -2407,37 +2469,66 @@ public class MainFrame extends JFrame {
 
     // <editor-fold defaultstate="collapsed" desc="Progress File Methods">
     private void progFile_open() {
+        if (invFile_loading) {
+            return;
+        }
         int retval = cfc.showOpenDialog(this);
         if (retval == JFileChooser.APPROVE_OPTION) {
             String path = cfc.getSelectedFile().getPath();
-            ProgressFile pf = IO.loadProgressFile(path, invChips);
-            calcSetting = pf.cs;
-            calcExtraSetting = pf.ces;
-            progress = pf.p;
-            combSaveButton.setEnabled(false);
-
-            boardNameComboBox.setSelectedItem(calcSetting.boardName);
-            boardStarComboBox.setSelectedIndex(5 - calcSetting.boardStar);
-
-            if (calcExtraSetting.calcMode != CalcExtraSetting.CALCMODE_FINISHED) {
-                Setting setting = app.setting;
-
-                setting.maxLevel = calcSetting.maxLevel;
-                setting.rotation = calcSetting.rotation;
-                setting.colorMatch = calcExtraSetting.matchColor;
-
-                setting.boardMarkMin = calcExtraSetting.markMin;
-                setting.boardMarkMax = calcExtraSetting.markMax;
-                setting.boardMarkType = calcExtraSetting.markType;
-                setting.boardSortType = calcExtraSetting.sortType;
-            }
-            process_init();
-            if (calcExtraSetting.calcMode != CalcExtraSetting.CALCMODE_FINISHED) {
-                process_pause();
+            ProgressFile pf = IO.loadProgressFile(path, invIndex);
+            progFile_load(pf, IO.getCheckpointFileName(pf.cs.boardName, pf.cs.boardStar));
+        }
+    }
+
+    // Offers the checkpoints of runs that did not finish; No deletes the file
+    private void progFile_openCheckpoint() {
+        for (File file : IO.getCheckpointFiles()) {
+            int retval = JOptionPane.showConfirmDialog(this,
+                    app.getText(AppText.FILE_CHECKPOINT_BODY, file.getName()), app.getText(AppText.FILE_CHECKPOINT_TITLE),
+                    JOptionPane.YES_NO_CANCEL_OPTION, JOptionPane.QUESTION_MESSAGE);
+            if (retval == JOptionPane.YES_OPTION) {
+                ProgressFile pf = IO.loadProgressFile(file.getPath(), invIndex);
+                if (pf != null) {
+                    // The resumed run keeps writing to the same file
+                    progFile_load(pf, file.getPath());
+                    return;
+                }
+            } else if (retval == JOptionPane.NO_OPTION) {
+                file.delete();
+            } else {
+                return;
             }
         }
     }
 
+    private void progFile_load(ProgressFile pf, String checkpoint) {
+        calcSetting = pf.cs;
+        calcExtraSetting = pf.ces;
+        progress = pf.p;
+        combSaveButton.setEnabled(false);
+
+        boardNameComboBox.setSelectedItem(calcSetting.boardName);
+        boardStarComboBox.setSelectedIndex(5 - calcSetting.boardStar);
+
+        if (calcExtraSetting.calcMode != CalcExtraSetting.CALCMODE_FINISHED) {
+            Setting setting = app.setting;
+
+            setting.maxLevel = calcSetting.maxLevel;
+            setting.rotation = calcSetting.rotation;
+            setting.colorMatch = calcExtraSetting.matchColor;
+
+            setting.boardMarkMin = calcExtraSetting.markMin;
+            setting.boardMarkMax = calcExtraSetting.markMax;
+            setting.boardMarkType = calcExtraSetting.markType;
+            setting.boardSortType = calcExtraSetting.sortType;
+        }
+        checkpointFile = checkpoint;
+        process_init();
+        if (calcExtraSetting.calcMode != CalcExtraSetting.CALCMODE_FINISHED) {
+            process_pause();
+        }
+    }
+
     private void progFile_saveAs() {
         if (combSaveButton.isEnabled()) {
             int retval = cfc.showSaveDialog(this);
@@ -73,6 +73,7 @@ public class ResearchFrame extends javax.swing.JFrame {
                 }
                 wait_(10);
             }
+            Assembler.flushTemplateCache();
         };
         initComponents();
         init();
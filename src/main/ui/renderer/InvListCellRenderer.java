@@ -45,15 +45,8 @@ public class InvListCellRenderer extends DefaultListCellRenderer {
 
         Chip c = (Chip) value;
 
-        boolean combSelected = false;
-        if (!combList.isSelectionEmpty()) {
-            for (String id : ((Board) combList.getSelectedValue()).getChipIDs()) {
-                if (c.getID().equals(id)) {
-                    combSelected = true;
-                    break;
-                }
-            }
-        }
+        boolean combSelected = !combList.isSelectionEmpty()
+                && ((Board) combList.getSelectedValue()).containsChip(c.getID());
 
         boolean resultSelected = false;
         if (combChipListTabbedPane.getSelectedIndex() == 0) {
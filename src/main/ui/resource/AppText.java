@@ -372,6 +372,8 @@ public class AppText {
     public static final String FILE_SAVE_BODY = "FILE_SAVE_BODY";
     public static final String FILE_OVERWRITE_TITLE = "FILE_OVERWRITE_TITLE";
     public static final String FILE_OVERWRITE_BODY = "FILE_OVERWRITE_BODY";
+    public static final String FILE_CHECKPOINT_TITLE = "FILE_CHECKPOINT_TITLE";
+    public static final String FILE_CHECKPOINT_BODY = "FILE_CHECKPOINT_BODY";
     // JSON
     public static final String JSON_TITLE = "JSON_TITLE";
     public static final String JSON_FILTER_STAR = "JSON_FILTER_STAR";
@@ -0,0 +1,217 @@
+package main.util;
+
+import java.awt.Point;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import main.puzzle.Board;
+import main.puzzle.BoardTemplate;
+import main.puzzle.Puzzle;
+import main.puzzle.PuzzleMask;
+import main.puzzle.Shape;
+
+/**
+ *
+ * @author Bunnyspa
+ */
+public class BoardTemplateFile {
+
+    // Header: magic, version, entry count
+    // Entry: name (UTF), star, partial, template count, data offset
+    // Template: puzzle count, (shape id, rotation, location index) per puzzle, symmetry
+    public static final String FILE_NAME = "template.bin";
+    private static final int MAGIC = 0x47464354;
+    private static final int VERSION = 1;
+
+    private final ByteBuffer buffer;
+    private final DoubleKeyHashMap<String, Integer, int[]> index = new DoubleKeyHashMap<>();
+
+    private BoardTemplateFile(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.getInt() != MAGIC || buffer.getShort() != VERSION) {
+            throw new IOException("Invalid template file");
+        }
+        int nEntry = buffer.getInt();
+        for (int i = 0; i < nEntry; i++) {
+            String name = getUTF(buffer);
+            int star = buffer.get();
+            boolean partial = buffer.get() != 0;
+            int count = buffer.getInt();
+            int offset = buffer.getInt();
+            index.put(name, toKey(star, partial), new int[]{count, offset});
+        }
+    }
+
+    public static BoardTemplateFile open(URL url) {
+        if (url == null) {
+            return null;
+        }
+        try {
+            return new BoardTemplateFile(map(url));
+        } catch (Exception ex) {
+            return null;
+        }
+    }
+
+    private static ByteBuffer map(URL url) throws Exception {
+        if ("file".equals(url.getProtocol())) {
+            try (FileChannel fc = FileChannel.open(Paths.get(url.toURI()), StandardOpenOption.READ)) {
+                return fc.map(FileChannel.MapMode.READ_ONLY, 0, fc.size());
+            }
+        }
+        // Inside a jar, the file cannot be mapped
+        try (InputStream is = url.openStream()) {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            byte[] b = new byte[8192];
+            int n;
+            while ((n = is.read(b)) != -1) {
+                baos.write(b, 0, n);
+            }
+            return ByteBuffer.wrap(baos.toByteArray());
+        }
+    }
+
+    public boolean contains(String name, int star, boolean isPartial) {
+        return index.containsKey(name, toKey(star, isPartial));
+    }
+
+    public int getCount(String name, int star, boolean isPartial) {
+        int[] entry = index.get(name, toKey(star, isPartial));
+        return entry == null ? 0 : entry[0];
+    }
+
+    public List<BoardTemplate> read(String name, int star, boolean isPartial) {
+        int[] entry = index.get(name, toKey(star, isPartial));
+        if (entry == null) {
+            return new ArrayList<>();
+        }
+        // Every reader has its own position
+        ByteBuffer bb = buffer.duplicate();
+        bb.position(entry[1]);
+
+        List<BoardTemplate> out = new ArrayList<>(entry[0]);
+        for (int i = 0; i < entry[0]; i++) {
+            int n = bb.get();
+            List<Puzzle> puzzles = new ArrayList<>(n);
+            for (int j = 0; j < n; j++) {
+                Shape shape = Shape.byId(bb.get());
+                int rotation = bb.get();
+                Point location = PuzzleMask.toPoint(bb.get());
+                puzzles.add(new Puzzle(shape, rotation, location));
+            }
+            boolean symmetry = bb.get() != 0;
+            out.add(new BoardTemplate(name, star, puzzles, symmetry));
+        }
+        return out;
+    }
+
+    private static int toKey(int star, boolean isPartial) {
+        return isPartial ? -star : star;
+    }
+
+    private static String getUTF(ByteBuffer bb) {
+        byte[] b = new byte[bb.getShort()];
+        bb.get(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    // <editor-fold defaultstate="collapsed" desc="Converter">
+    // Converts the .dat templates to a single binary file
+    // The .dat files are kept in template/ at the top of the repository and are not packaged;
+    // the output is committed as resources/template/template.bin, so run again after changing any .dat file
+    // Usage: BoardTemplateFile [.dat directory] [output file]
+    public static void main(String[] args) throws IOException {
+        File dir = new File(args.length > 0 ? args[0] : "template");
+        File file = new File(args.length > 1 ? args[1] : FILE_NAME);
+        if (!dir.isDirectory()) {
+            System.out.println(dir.getPath() + " is not a directory");
+            return;
+        }
+
+        List<String> names = new ArrayList<>();
+        List<Integer> stars = new ArrayList<>();
+        List<Boolean> partials = new ArrayList<>();
+        List<List<BoardTemplate>> templatesList = new ArrayList<>();
+        for (String name : Board.NAMES) {
+            for (int star = 1; star <= 5; star++) {
+                for (boolean partial : new boolean[]{false, true}) {
+                    List<BoardTemplate> templates = removeDuplicates(name, star, IO.loadBoardTemplates_dat(dir, name, star, partial));
+                    if (!templates.isEmpty()) {
+                        names.add(name);
+                        stars.add(star);
+                        partials.add(partial);
+                        templatesList.add(templates);
+                    }
+                }
+            }
+        }
+
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream ho = new DataOutputStream(header);
+        DataOutputStream bo = new DataOutputStream(body);
+
+        int headerSize = 4 + 2 + 4;
+        for (String name : names) {
+            headerSize += 2 + name.getBytes(StandardCharsets.UTF_8).length + 1 + 1 + 4 + 4;
+        }
+
+        ho.writeInt(MAGIC);
+        ho.writeShort(VERSION);
+        ho.writeInt(names.size());
+        for (int i = 0; i < names.size(); i++) {
+            List<BoardTemplate> templates = templatesList.get(i);
+            ho.writeUTF(names.get(i));
+            ho.writeByte(stars.get(i));
+            ho.writeByte(partials.get(i) ? 1 : 0);
+            ho.writeInt(templates.size());
+            ho.writeInt(headerSize + bo.size());
+            for (BoardTemplate template : templates) {
+                List<Puzzle> puzzles = template.getPuzzles();
+                bo.writeByte(puzzles.size());
+                for (Puzzle p : puzzles) {
+                    bo.writeByte(p.shape.id);
+                    bo.writeByte(p.rotation);
+                    bo.writeByte(PuzzleMask.index(p.location));
+                }
+                bo.writeByte(template.isSymmetric() ? 1 : 0);
+            }
+        }
+
+        try (FileOutputStream fos = new FileOutputStream(file)) {
+            header.writeTo(fos);
+            body.writeTo(fos);
+        }
+        System.out.println(templatesList.stream().mapToInt(List::size).sum() + " templates -> " + file.getPath());
+    }
+
+    // Templates that are the same under a rotation of the board are written once
+    private static List<BoardTemplate> removeDuplicates(String name, int star, List<BoardTemplate> templates) {
+        Set<String> keys = new HashSet<>();
+        List<BoardTemplate> out = new ArrayList<>(templates.size());
+        for (BoardTemplate template : templates) {
+            if (keys.add(Arrays.toString(Board.getCanonicalPlacement(name, star, template.getPuzzles())))) {
+                out.add(template);
+            }
+        }
+        if (out.size() < templates.size()) {
+            System.out.println(name + " " + star + ": " + (templates.size() - out.size()) + " duplicates removed");
+        }
+        return out;
+    }
+    // </editor-fold>
+}
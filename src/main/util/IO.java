@@ -21,9 +21,16 @@ import java.io.Reader;
 import java.net.URI;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -39,6 +46,7 @@ import main.App;
 import main.puzzle.Board;
 import main.puzzle.BoardTemplate;
 import main.puzzle.Chip;
+import main.puzzle.ChipIndex;
 import main.puzzle.Puzzle;
 import main.puzzle.PuzzleMatrix;
 import main.puzzle.Shape;
@@ -66,6 +74,9 @@ public class IO {
     private static final String PATH_EX_LANG = "language";
 
     private static final String FILENAME_SETTINGS = "settings.dat";
+    private static final String FILENAME_TEMPLATE_CACHE = "template_cache.dat";
+    // A checkpoint file per run: checkpoint_<board>_<star>_<time>.gfcc
+    private static final String PREFIX_CHECKPOINT = "checkpoint_";
 
     private static final String FILENAME_UPDATE = "GFChipCalc-Update.jar";
 
@@ -73,6 +84,10 @@ public class IO {
     private static final String URL_GITHUB_UPDATE = "https://github.com/Bunnyspa/GFChipCalc-Update/releases/latest";
     private static final String URL_DOWNLOAD_UPDATE = URL_GITHUB_UPDATE + "/download/GFChipCalc-Update.jar";
 
+    // Binary templates, opened once
+    private static BoardTemplateFile templateFile;
+    private static boolean templateFileOpened;
+
     private static int pre420rotation(Shape shape) {
         switch (shape) {
             case _4_I:
@@ -138,12 +153,15 @@ public class IO {
     }
 
     public static void saveInventory(String fileName, List<Chip> chips) {
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(fileName))) {
-            bw.write(App.VERSION.toData());
-            bw.newLine();
-            for (Chip c : chips) {
-                bw.write(c.toData());
-                bw.newLine();
+        saveInventory(fileName, chips, false);
+    }
+
+    public static void saveInventory(String fileName, List<Chip> chips, boolean binary) {
+        try {
+            if (binary) {
+                InventoryFile.writeBinary(fileName, chips);
+            } else {
+                InventoryFile.writeText(fileName, chips);
             }
         } catch (Exception ex) {
             App.log(ex);
@@ -265,14 +283,23 @@ public class IO {
     // </editor-fold>
 
     // <editor-fold defaultstate="collapsed" desc="Progress">
-    public static ProgressFile loadProgressFile(String fileName, List<Chip> invChips) {
+    public static ProgressFile loadProgressFile(String fileName, ChipIndex invIndex) {
+        if (ProgressBinaryFile.isBinary(fileName)) {
+            try {
+                return ProgressBinaryFile.read(fileName, invIndex);
+            } catch (Exception ex) {
+                App.log(ex);
+                return null;
+            }
+        }
+        // Text files of earlier versions; they are saved in the binary format from now on
         try (BufferedReader br = new BufferedReader(new FileReader(fileName))) {
             Iterator<String> bri = br.lines().iterator();
             if (bri.hasNext()) {
                 String s = bri.next();
                 Version3 v = new Version3(s);
                 if (v.isCurrent(5, 3, 0)) {
-                    return parseProgressFile(v, bri, invChips);
+                    return parseProgressFile(v, bri, invIndex);
                 } else {
                     List<Board> boards = loadCombination(s, bri);
                     String name = "";
@@ -286,7 +313,7 @@ public class IO {
                     }
                     Set<Chip> chipSet = new HashSet<>();
                     boards.forEach((b) -> b.forEachChip((c) -> chipSet.add(c)));
-                    loadProgress_adjustInits(chipSet, invChips);
+                    loadProgress_adjustInits(chipSet, invIndex);
                     return new ProgressFile(
                             new CalcSetting(name, star, false, false, false, stat, null),
                             new CalcExtraSetting(CalcExtraSetting.CALCMODE_FINISHED, 0, false, 0, 0, 0, 0, new ArrayList<>(chipSet)),
@@ -300,13 +327,37 @@ public class IO {
         return null;
     }
 
-    public static void saveProgressFile(String fileName, ProgressFile pf) {
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(fileName))) {
-            bw.write(App.VERSION.toData());
-            bw.newLine();
-            bw.write(pf.toData());
+    public static String getCheckpointFileName(String boardName, int star) {
+        SimpleDateFormat formatter = new SimpleDateFormat("yyMMdd_HHmmss_SSS");
+        return PREFIX_CHECKPOINT + toFileName(boardName) + "_" + star + "_" + formatter.format(new Date()) + "." + EXT_COMBINATION;
+    }
+
+    // Checkpoints left by runs that did not finish, newest first
+    public static List<File> getCheckpointFiles() {
+        List<File> files = new ArrayList<>();
+        File[] list = new File(".").listFiles((dir, name) -> name.startsWith(PREFIX_CHECKPOINT) && name.endsWith("." + EXT_COMBINATION));
+        if (list != null) {
+            files.addAll(Arrays.asList(list));
+        }
+        files.sort(Comparator.comparingLong(File::lastModified).reversed());
+        return files;
+    }
+
+    public static boolean saveProgressFile(String fileName, ProgressFile pf) {
+        // Written next to the target and renamed so that the old file survives a crash while saving
+        File tmp = new File(fileName + ".tmp");
+        try {
+            ProgressBinaryFile.write(tmp.toPath(), pf);
+            try {
+                Files.move(tmp.toPath(), Paths.get(fileName), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(tmp.toPath(), Paths.get(fileName), StandardCopyOption.REPLACE_EXISTING);
+            }
+            return true;
         } catch (Exception ex) {
             App.log(ex);
+            tmp.delete();
+            return false;
         }
     }
     // </editor-fold>
@@ -347,23 +398,50 @@ public class IO {
     // </editor-fold>
 
     // <editor-fold defaultstate="collapsed" desc="Preset">
+    // The templates are read from template.bin only; the .dat sources are not packaged
     public static List<BoardTemplate> loadBoardTemplates(String name, int star, boolean isPartial) {
+        BoardTemplateFile file = getBoardTemplateFile();
+        if (file != null) {
+            return file.read(name, star, isPartial);
+        }
+        return new ArrayList<>();
+    }
+
+    // Checks the index only, without reading the templates
+    public static boolean hasBoardTemplates(String name, int star, boolean isPartial) {
+        BoardTemplateFile file = getBoardTemplateFile();
+        return file != null && 0 < file.getCount(name, star, isPartial);
+    }
+
+    private static synchronized BoardTemplateFile getBoardTemplateFile() {
+        if (!templateFileOpened) {
+            templateFile = BoardTemplateFile.open(App.getResource("template/" + BoardTemplateFile.FILE_NAME));
+            templateFileOpened = true;
+        }
+        return templateFile;
+    }
+
+    // Source of template.bin, used by its converter
+    static List<BoardTemplate> loadBoardTemplates_dat(File dir, String name, int star, boolean isPartial) {
         List<BoardTemplate> out = new ArrayList<>();
 
-        String fileName = "template_" + toFileName(name) + "_" + star + (isPartial ? "_p" : "") + ".dat";
-        URL url = App.getResource("template/" + fileName);
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(url.openStream()))) {
+        File file = new File(dir, "template_" + toFileName(name) + "_" + star + (isPartial ? "_p" : "") + ".dat");
+        if (!file.exists()) {
+            return out;
+        }
+        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
             Iterator<String> bri = br.lines().iterator();
             while (bri.hasNext()) {
                 String line = bri.next();
                 out.add(loadBoardTemplate(name, star, line));
             }
         } catch (Exception ex) {
+            App.log(ex);
         }
         return out;
     }
 
-    private static BoardTemplate loadBoardTemplate(String name, int star, String line) {
+    public static BoardTemplate loadBoardTemplate(String name, int star, String line) {
         String[] split = line.split(";");
         String[] names = split[0].split(",");
         String[] rotations = split[1].split(",");
@@ -390,6 +468,35 @@ public class IO {
         }
     }
 
+    public static List<String> loadTemplateCache() {
+        List<String> lines = new ArrayList<>();
+        File file = new File(FILENAME_TEMPLATE_CACHE);
+        if (!file.exists()) {
+            return lines;
+        }
+        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
+            br.lines().forEach(lines::add);
+        } catch (Exception ex) {
+            App.log(ex);
+        }
+        return lines;
+    }
+
+    public static void saveTemplateCache(List<String> lines) {
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(FILENAME_TEMPLATE_CACHE))) {
+            for (String line : lines) {
+                bw.write(line);
+                bw.newLine();
+            }
+        } catch (Exception ex) {
+            App.log(ex);
+        }
+    }
+
+    public static BufferedWriter appendTemplateCache() throws IOException {
+        return new BufferedWriter(new FileWriter(FILENAME_TEMPLATE_CACHE, true));
+    }
+
     public static String toFileName(String boardName) {
         return boardName.replace("-", "").replace(" ", "").toLowerCase();
     }
@@ -695,7 +802,7 @@ public class IO {
     }
 
     //========== Progress ==========//
-    public static ProgressFile parseProgressFile(Version3 v, Iterator<String> it, List<Chip> invChips) {
+    public static ProgressFile parseProgressFile(Version3 v, Iterator<String> it, ChipIndex invIndex) {
         int calcMode = Integer.valueOf(it.next());
         String name = it.next();
         int star = Integer.valueOf(it.next());
@@ -708,7 +815,7 @@ public class IO {
                 nComb = Integer.valueOf(it.next());
             }
 
-            List<Chip> chips = parseProgress_chips(v, it, invChips);
+            List<Chip> chips = parseProgress_chips(v, it, invIndex);
             chips.forEach((c) -> c.setMaxLevel());
 
             List<Board> boards = parseProgress_boards(name, star, stat, chips, it);
@@ -742,7 +849,7 @@ public class IO {
         int progMax = Integer.valueOf(it.next());
         int tag = Integer.valueOf(it.next());
 
-        List<Chip> chips = parseProgress_chips(v, it, invChips);
+        List<Chip> chips = parseProgress_chips(v, it, invIndex);
         if (maxLevel) {
             chips.forEach((c) -> c.setMaxLevel());
         }
@@ -756,26 +863,23 @@ public class IO {
         );
     }
 
-    private static List<Chip> parseProgress_chips(Version3 v, Iterator<String> it, List<Chip> invChips) {
+    private static List<Chip> parseProgress_chips(Version3 v, Iterator<String> it, ChipIndex invIndex) {
         int nChip = Integer.valueOf(it.next());
         List<Chip> chips = new ArrayList<>();
         Set<Tag> tags = new HashSet<>();
         for (int i = 0; i < nChip; i++) {
             chips.add(parseChip(v, it.next(), tags));
         }
-        loadProgress_adjustInits(chips, invChips);
+        loadProgress_adjustInits(chips, invIndex);
         return chips;
     }
 
-    private static void loadProgress_adjustInits(Collection<Chip> chips, List<Chip> invChips) {
+    static void loadProgress_adjustInits(Collection<Chip> chips, ChipIndex invIndex) {
         chips.forEach((c) -> {
-            for (int i = 0; i < invChips.size(); i++) {
-                Chip ic = invChips.get(i);
-                if (c.equals(ic)) {
-                    c.setInitRotation(ic.getInitRotation());
-                    c.setInitLevel(ic.getInitLevel());
-                    break;
-                }
+            Chip ic = invIndex.get(c.getID());
+            if (ic != null) {
+                c.setInitRotation(ic.getInitRotation());
+                c.setInitLevel(ic.getInitLevel());
             }
         });
     }
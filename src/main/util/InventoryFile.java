@@ -0,0 +1,365 @@
+package main.util;
+
+import java.awt.Color;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import main.App;
+import main.puzzle.Chip;
+import main.puzzle.Shape;
+import main.puzzle.Stat;
+import main.puzzle.Tag;
+
+/**
+ *
+ * @author Bunnyspa
+ */
+public class InventoryFile {
+
+    // Text: app version, then Chip.toData() per line
+    // Binary: magic, version, tag count, (rgb, name) per tag, chip count,
+    //         (id, shape id, star, color, pt, init level, init rotation, marked, tag count, tag index per tag) per chip
+    // Strings in the binary file are written as a byte count and UTF-8 bytes
+    private static final int MAGIC = 0x47464349;
+    private static final int VERSION = 1;
+    // Chips passed to the consumer at once
+    private static final int BATCH_SIZE = 1000;
+
+    private static final Shape[] SHAPES_BY_ID;
+
+    static {
+        int max = 0;
+        for (Shape shape : Shape.values()) {
+            max = Math.max(max, shape.id);
+        }
+        SHAPES_BY_ID = new Shape[max + 1];
+        for (Shape shape : Shape.values()) {
+            SHAPES_BY_ID[shape.id] = shape;
+        }
+    }
+
+    // Reads the inventory and passes the chips in batches as they are parsed
+    public static void read(String fileName, Consumer<List<Chip>> action) {
+        try {
+            ByteBuffer bb = load(fileName);
+            if (4 <= bb.remaining() && bb.getInt(0) == MAGIC) {
+                readBinary(bb, action);
+                return;
+            }
+            // Text files are written with the default charset
+            Charset charset = Charset.defaultCharset();
+            int end = lineEnd(bb, 0);
+            Version3 v = new Version3(new String(bb.array(), 0, end, charset));
+            if (!v.isCurrent(7, 0, 0)) {
+                // Shape names of earlier versions
+                action.accept(IO.loadInventory(fileName));
+                return;
+            }
+            new TextParser(bb, charset).parse(end + 1, action);
+        } catch (Exception ex) {
+            App.log(ex);
+        }
+    }
+
+    public static List<Chip> read(String fileName) {
+        List<Chip> chips = new ArrayList<>();
+        read(fileName, chips::addAll);
+        return chips;
+    }
+
+    private static ByteBuffer load(String fileName) throws IOException {
+        try (FileChannel fc = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            ByteBuffer bb = ByteBuffer.allocate((int) fc.size());
+            while (bb.hasRemaining() && fc.read(bb) != -1) {
+            }
+            bb.flip();
+            return bb;
+        }
+    }
+
+    private static int lineEnd(ByteBuffer bb, int i) {
+        int limit = bb.limit();
+        while (i < limit && bb.get(i) != '\n' && bb.get(i) != '\r') {
+            i++;
+        }
+        return i;
+    }
+
+    // <editor-fold defaultstate="collapsed" desc="Text">
+    // Same result as IO.parseChip for each line, without splitting the line into strings
+    private static class TextParser {
+
+        private final byte[] b;
+        private final int limit;
+        private final Charset charset;
+        private final Map<String, Tag> tagPool = new HashMap<>();
+        private final Map<Tag, Tag> tagValuePool = new HashMap<>();
+        private int pos;
+
+        TextParser(ByteBuffer bb, Charset charset) {
+            this.b = bb.array();
+            this.limit = bb.limit();
+            this.charset = charset;
+        }
+
+        void parse(int start, Consumer<List<Chip>> action) {
+            pos = start;
+            List<Chip> batch = new ArrayList<>(BATCH_SIZE);
+            // Chips before an invalid line are kept
+            try {
+                while (pos < limit) {
+                    int end = pos;
+                    while (end < limit && b[end] != '\n' && b[end] != '\r') {
+                        end++;
+                    }
+                    if (pos < end) {
+                        batch.add(parseChip(end));
+                        if (batch.size() == BATCH_SIZE) {
+                            action.accept(batch);
+                            batch = new ArrayList<>(BATCH_SIZE);
+                        }
+                    }
+                    pos = end + 1;
+                }
+            } finally {
+                if (!batch.isEmpty()) {
+                    action.accept(batch);
+                }
+            }
+        }
+
+        private Chip parseChip(int end) {
+            String id = nextString(end, ';');
+            Shape shape = SHAPES_BY_ID[nextInt(end, ';')];
+            int star = nextInt(end, ';');
+            int color = nextInt(end, ';');
+            int dmg = nextInt(end, ',');
+            int brk = nextInt(end, ',');
+            int hit = nextInt(end, ',');
+            int rld = nextInt(end, ';');
+            int initLevel = nextInt(end, ';');
+            int initRotation = nextInt(end, ';');
+            boolean marked = nextBoolean(end);
+
+            Set<Tag> tags = new HashSet<>();
+            int tagEnd = pos;
+            while (tagEnd < end && b[tagEnd] != ';') {
+                tagEnd++;
+            }
+            while (pos < tagEnd) {
+                tags.add(nextTag(tagEnd));
+            }
+            return new Chip(id, shape, star, color, new Stat(dmg, brk, hit, rld), initLevel, initRotation, marked, tags);
+        }
+
+        private int fieldEnd(int end, char delim) {
+            int i = pos;
+            while (i < end && b[i] != delim) {
+                i++;
+            }
+            return i;
+        }
+
+        private String nextString(int end, char delim) {
+            int i = fieldEnd(end, delim);
+            String s = new String(b, pos, i - pos, charset);
+            pos = i + 1;
+            return s;
+        }
+
+        private int nextInt(int end, char delim) {
+            int i = fieldEnd(end, delim);
+            if (pos == i) {
+                throw new NumberFormatException("Empty number");
+            }
+            boolean negative = b[pos] == '-';
+            int value = 0;
+            for (int k = negative ? pos + 1 : pos; k < i; k++) {
+                int d = b[k] - '0';
+                if (d < 0 || 9 < d) {
+                    throw new NumberFormatException(new String(b, pos, i - pos, charset));
+                }
+                value = value * 10 + d;
+            }
+            pos = i + 1;
+            return negative ? -value : value;
+        }
+
+        private boolean nextBoolean(int end) {
+            int i = fieldEnd(end, ';');
+            boolean value = IO.parseBoolean(new String(b, pos, i - pos, StandardCharsets.US_ASCII));
+            pos = i + 1;
+            return value;
+        }
+
+        // The same tag is shared by all chips of the file
+        private Tag nextTag(int end) {
+            int i = pos;
+            while (i < end && b[i] != ',') {
+                i++;
+            }
+            String s = new String(b, pos, i - pos, charset);
+            pos = i + 1;
+            if (s.length() <= 6) {
+                // A new random tag, as IO.parseTag does
+                return IO.parseTag(s);
+            }
+            Tag tag = tagPool.get(s);
+            if (tag == null) {
+                Tag parsed = IO.parseTag(s);
+                tag = tagValuePool.computeIfAbsent(parsed, (t) -> parsed);
+                tagPool.put(s, tag);
+            }
+            return tag;
+        }
+    }
+
+    // Same text as IO.saveInventory with Chip.toData(), written without the intermediate strings
+    public static void writeText(String fileName, List<Chip> chips) throws IOException {
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(fileName))) {
+            bw.write(App.VERSION.toData());
+            bw.newLine();
+            Map<Tag, String> tagData = new HashMap<>();
+            StringBuilder sb = new StringBuilder();
+            for (Chip c : chips) {
+                sb.setLength(0);
+                Stat pt = c.getPt();
+                sb.append(c.getID()).append(';')
+                        .append(c.getShape().id).append(';')
+                        .append(c.getStar()).append(';')
+                        .append(c.getColor()).append(';')
+                        .append(pt.dmg).append(',').append(pt.brk).append(',').append(pt.hit).append(',').append(pt.rld).append(';')
+                        .append(c.getInitLevel()).append(';')
+                        .append(c.getInitRotation()).append(';')
+                        .append(IO.data(c.isMarked())).append(';');
+                boolean first = true;
+                for (Tag t : c.getTags()) {
+                    if (!first) {
+                        sb.append(',');
+                    }
+                    sb.append(tagData.computeIfAbsent(t, Tag::toData));
+                    first = false;
+                }
+                bw.append(sb);
+                bw.newLine();
+            }
+        }
+    }
+    // </editor-fold>
+
+    // <editor-fold defaultstate="collapsed" desc="Binary">
+    private static void readBinary(ByteBuffer bb, Consumer<List<Chip>> action) throws IOException {
+        if (bb.getInt() != MAGIC || bb.getShort() != VERSION) {
+            throw new IOException("Invalid inventory file");
+        }
+        Tag[] tags = new Tag[bb.getInt()];
+        for (int i = 0; i < tags.length; i++) {
+            Color color = new Color(bb.getInt());
+            tags[i] = new Tag(color, getString(bb));
+        }
+        int nChip = bb.getInt();
+        List<Chip> batch = new ArrayList<>(Math.min(nChip, BATCH_SIZE));
+        for (int i = 0; i < nChip; i++) {
+            String id = getString(bb);
+            Shape shape = SHAPES_BY_ID[bb.get()];
+            int star = bb.get();
+            int color = bb.get();
+            Stat pt = new Stat(bb.get(), bb.get(), bb.get(), bb.get());
+            int initLevel = bb.get();
+            int initRotation = bb.get();
+            boolean marked = bb.get() != 0;
+            int nTag = bb.get();
+            Set<Tag> chipTags = new HashSet<>();
+            for (int k = 0; k < nTag; k++) {
+                chipTags.add(tags[bb.getShort() & 0xffff]);
+            }
+            batch.add(new Chip(id, shape, star, color, pt, initLevel, initRotation, marked, chipTags));
+            if (batch.size() == BATCH_SIZE) {
+                action.accept(batch);
+                batch = new ArrayList<>(BATCH_SIZE);
+            }
+        }
+        if (!batch.isEmpty()) {
+            action.accept(batch);
+        }
+    }
+
+    public static void writeBinary(String fileName, List<Chip> chips) throws IOException {
+        Map<Tag, Integer> tagIndexes = new HashMap<>();
+        List<Tag> tags = new ArrayList<>();
+        for (Chip c : chips) {
+            // The tag count of a chip is written as a signed byte
+            if (Byte.MAX_VALUE < c.getTags().size()) {
+                throw new IOException("Too many tags: " + c.getID());
+            }
+            for (Tag t : c.getTags()) {
+                if (!tagIndexes.containsKey(t)) {
+                    tagIndexes.put(t, tags.size());
+                    tags.add(t);
+                }
+            }
+        }
+        if (0xffff < tags.size()) {
+            throw new IOException("Too many tags");
+        }
+        try (FileChannel fc = FileChannel.open(Paths.get(fileName), StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+                DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(fc)))) {
+            dos.writeInt(MAGIC);
+            dos.writeShort(VERSION);
+            dos.writeInt(tags.size());
+            for (Tag t : tags) {
+                dos.writeInt(t.getColor().getRGB());
+                putString(dos, t.getName());
+            }
+            dos.writeInt(chips.size());
+            for (Chip c : chips) {
+                putString(dos, c.getID());
+                dos.writeByte(c.getShape().id);
+                dos.writeByte(c.getStar());
+                dos.writeByte(c.getColor());
+                Stat pt = c.getPt();
+                dos.writeByte(pt.dmg);
+                dos.writeByte(pt.brk);
+                dos.writeByte(pt.hit);
+                dos.writeByte(pt.rld);
+                dos.writeByte(c.getInitLevel());
+                dos.writeByte(c.getInitRotation());
+                dos.writeBoolean(c.isMarked());
+                Set<Tag> chipTags = c.getTags();
+                dos.writeByte(chipTags.size());
+                for (Tag t : chipTags) {
+                    dos.writeShort(tagIndexes.get(t));
+                }
+            }
+        }
+    }
+
+    private static void putString(DataOutputStream dos, String s) throws IOException {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        dos.writeShort(b.length);
+        dos.write(b);
+    }
+
+    private static String getString(ByteBuffer bb) {
+        byte[] b = new byte[bb.getShort() & 0xffff];
+        bb.get(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+    // </editor-fold>
+}
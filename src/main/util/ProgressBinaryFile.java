@@ -0,0 +1,231 @@
+package main.util;
+
+import java.awt.Point;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import main.App;
+import main.puzzle.Board;
+import main.puzzle.Chip;
+import main.puzzle.ChipIndex;
+import main.puzzle.PuzzleMask;
+import main.puzzle.Stat;
+import main.puzzle.Tag;
+import main.puzzle.assembly.CalcExtraSetting;
+import main.puzzle.assembly.CalcSetting;
+import main.puzzle.assembly.Progress;
+import main.puzzle.assembly.ProgressFile;
+
+/**
+ *
+ * @author Bunnyspa
+ */
+public class ProgressBinaryFile {
+
+    // Header: magic, version, app version (string)
+    // Setting: calc mode, name (string), star, max level, match color, rotation, symmetry,
+    //          mark min, mark max, mark type, sort type, stat, pt, nComb, nDone, nTotal, calc mode tag
+    // Chip table: chip count, chip data (string) per chip
+    // Boards: board count, (chip count, (chip index, rotation, location index) per chip) per board
+    // Strings are written as a byte count and UTF-8 bytes
+    private static final int MAGIC = 0x47464350;
+    private static final int VERSION = 1;
+
+    public static boolean isBinary(String fileName) {
+        try (FileChannel fc = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            ByteBuffer bb = ByteBuffer.allocate(4);
+            while (bb.hasRemaining() && fc.read(bb) != -1) {
+            }
+            bb.flip();
+            return bb.remaining() == 4 && bb.getInt() == MAGIC;
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    public static void write(Path path, ProgressFile pf) throws IOException {
+        CalcSetting cs = pf.cs;
+        CalcExtraSetting ces = pf.ces;
+        Progress p = pf.p;
+        try (FileChannel fc = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+                DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(fc)))) {
+            dos.writeInt(MAGIC);
+            dos.writeShort(VERSION);
+            putString(dos, App.VERSION.toData());
+
+            dos.writeInt(ces.calcMode);
+            putString(dos, cs.boardName);
+            dos.writeByte(cs.boardStar);
+            dos.writeBoolean(cs.maxLevel);
+            dos.writeBoolean(ces.matchColor);
+            dos.writeBoolean(cs.rotation);
+            dos.writeBoolean(cs.symmetry);
+            dos.writeInt(ces.markMin);
+            dos.writeInt(ces.markMax);
+            dos.writeInt(ces.markType);
+            dos.writeInt(ces.sortType);
+            putStat(dos, cs.stat);
+            putStat(dos, cs.pt);
+            dos.writeInt(p.nComb);
+            dos.writeInt(p.nDone);
+            dos.writeInt(p.nTotal);
+            dos.writeInt(ces.calcModeTag);
+
+            // Chips
+            Map<Chip, Integer> chipIndexes = new HashMap<>(ces.chips.size() * 2);
+            dos.writeInt(ces.chips.size());
+            for (int i = 0; i < ces.chips.size(); i++) {
+                Chip c = ces.chips.get(i);
+                chipIndexes.putIfAbsent(c, i);
+                putString(dos, c.toData());
+            }
+
+            // Boards
+            List<Board> boards = p.getBoards();
+            dos.writeInt(boards.size());
+            for (Board b : boards) {
+                dos.writeByte(b.getChipCount());
+                for (Chip c : b.getChips()) {
+                    Integer index = chipIndexes.get(c);
+                    // Boards refer to chips by their index in the table
+                    if (index == null) {
+                        throw new IOException("Chip not in the chip table: " + c.getID());
+                    }
+                    dos.writeInt(index);
+                    dos.writeByte(c.getRotation());
+                    dos.writeByte(PuzzleMask.index(b.getLocation(c)));
+                }
+            }
+        }
+    }
+
+    public static ProgressFile read(String fileName, ChipIndex invIndex) throws IOException {
+        ByteBuffer bb = load(Paths.get(fileName));
+        if (bb.getInt() != MAGIC || bb.getShort() != VERSION) {
+            throw new IOException("Invalid progress file");
+        }
+        Version3 v = new Version3(getString(bb));
+
+        int calcMode = bb.getInt();
+        String name = getString(bb);
+        int star = bb.get();
+        boolean maxLevel = bb.get() != 0;
+        boolean matchColor = bb.get() != 0;
+        boolean rotation = bb.get() != 0;
+        boolean symmetry = bb.get() != 0;
+        int markMin = bb.getInt();
+        int markMax = bb.getInt();
+        int markType = bb.getInt();
+        int sortType = bb.getInt();
+        Stat stat = getStat(bb);
+        Stat pt = getStat(bb);
+        int nComb = bb.getInt();
+        int nDone = bb.getInt();
+        int nTotal = bb.getInt();
+        int tag = bb.getInt();
+
+        // Chips
+        int nChip = bb.getInt();
+        List<Chip> chips = new ArrayList<>(nChip);
+        Set<Tag> tags = new HashSet<>();
+        for (int i = 0; i < nChip; i++) {
+            chips.add(IO.parseChip(v, getString(bb), tags));
+        }
+        IO.loadProgress_adjustInits(chips, invIndex);
+        if (maxLevel) {
+            chips.forEach((c) -> c.setMaxLevel());
+        }
+
+        // Boards
+        int nBoard = bb.getInt();
+        List<Board> boards = new ArrayList<>(nBoard);
+        for (int i = 0; i < nBoard; i++) {
+            int n = bb.get();
+            List<Chip> bChips = new ArrayList<>(n);
+            List<Point> bLocs = new ArrayList<>(n);
+            for (int k = 0; k < n; k++) {
+                Chip c = new Chip(chips.get(bb.getInt()));
+                c.setRotation(bb.get());
+                bChips.add(c);
+                bLocs.add(PuzzleMask.toPoint(bb.get()));
+            }
+            boards.add(new Board(name, star, stat, bChips, bLocs));
+        }
+
+        return new ProgressFile(
+                new CalcSetting(name, star, maxLevel, rotation, symmetry, stat, pt),
+                new CalcExtraSetting(calcMode, tag, matchColor, markMin, markMax, markType, sortType, chips),
+                new Progress(sortType, nComb, nDone, nTotal, boards)
+        );
+    }
+
+    // Read into memory instead of mapped so that the file can be replaced while the progress is open
+    private static ByteBuffer load(Path path) throws IOException {
+        try (FileChannel fc = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer bb = ByteBuffer.allocate((int) fc.size());
+            while (bb.hasRemaining() && fc.read(bb) != -1) {
+            }
+            bb.flip();
+            return bb;
+        }
+    }
+
+    private static void putString(DataOutputStream dos, String s) throws IOException {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        dos.writeInt(b.length);
+        dos.write(b);
+    }
+
+    private static String getString(ByteBuffer bb) {
+        byte[] b = new byte[bb.getInt()];
+        bb.get(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    private static void putStat(DataOutputStream dos, Stat stat) throws IOException {
+        int[] v = stat == null ? new int[4] : stat.toArray();
+        for (int i = 0; i < 4; i++) {
+            dos.writeInt(v[i]);
+        }
+    }
+
+    private static Stat getStat(ByteBuffer bb) {
+        return new Stat(bb.getInt(), bb.getInt(), bb.getInt(), bb.getInt());
+    }
+
+    // <editor-fold defaultstate="collapsed" desc="Migrator">
+    // Converts a text progress file to the binary format
+    // Usage: ProgressBinaryFile <input file> [output file]
+    public static void main(String[] args) throws IOException {
+        String input = args[0];
+        String output = args.length > 1 ? args[1] : input;
+        if (isBinary(input)) {
+            System.out.println(input + " is already binary");
+            return;
+        }
+        ProgressFile pf = IO.loadProgressFile(input, new ChipIndex());
+        if (pf == null) {
+            System.out.println(input + " cannot be read");
+            return;
+        }
+        if (!IO.saveProgressFile(output, pf)) {
+            System.out.println(output + " cannot be written");
+            return;
+        }
+        System.out.println(pf.p.getBoardSize() + " boards -> " + output);
+    }
+    // </editor-fold>
+}
@@ -18,6 +18,14 @@ public class Rational {
         this.denominator = d;
     }
 
+    public int getNumerator() {
+        return numerator;
+    }
+
+    public int getDenominator() {
+        return denominator;
+    }
+
     public int getIntFloor() {
         int q = numerator / denominator;
         return q;